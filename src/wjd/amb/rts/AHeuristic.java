@@ -19,21 +19,44 @@ package wjd.amb.rts;
 import wjd.math.V2;
 
 /**
+ * An estimate of the cost of the cheapest path between two grid positions,
+ * used to guide the searches: extend it to plug in a better informed one,
+ * such as LandmarkHeuristic.
  *
  * @author wdyce
  * @since Nov 22, 2012
  */
-abstract class AHeuristic
+public abstract class AHeuristic
 {
   /* INTERFACE */
-  public abstract int estimate(V2 start, V2 end);
+  
+  /**
+   * Estimate the cost of getting from one grid position to another, without
+   * allocating anything: this is the version used in the inner search loops.
+   * 
+   * @param start_col the column of the starting position.
+   * @param start_row the row of the starting position.
+   * @param end_col the column of the destination.
+   * @param end_row the row of the destination.
+   * @return the estimated cost, in the same fixed-point units as the 
+   * PathFinder step costs, which should never be an overestimate.
+   */
+  public abstract int estimate(int start_col, int start_row, 
+                               int end_col, int end_row);
+  
+  /* METHODS */
+  
+  public int estimate(V2 start, V2 end)
+  {
+    return estimate((int)start.x, (int)start.y, (int)end.x, (int)end.y);
+  }
 
   /* IMPLEMENTATIONS */
     
   public static final AHeuristic NONE = new AHeuristic()
   {
     @Override
-    public int estimate(V2 start, V2 end)
+    public int estimate(int start_col, int start_row, int end_col, int end_row)
     {
       return 0;
     }
@@ -42,20 +65,38 @@ abstract class AHeuristic
   public static final AHeuristic EUCLIEAN = new AHeuristic()
   {
     @Override
-    public int estimate(V2 start, V2 end)
+    public int estimate(int start_col, int start_row, int end_col, int end_row)
+    {
+      int dx = end_col - start_col, dy = end_row - start_row;
+      return (int)(PathFinder.STRAIGHT_COST * Math.sqrt(dx*dx + dy*dy));
+    }
+  };
+  
+  /**
+   * Exact distance on an open 8-connected grid: diagonal steps as far as 
+   * possible, then straight steps.
+   */
+  public static final AHeuristic OCTILE = new AHeuristic()
+  {
+    @Override
+    public int estimate(int start_col, int start_row, int end_col, int end_row)
     {
-      return 
-        (int)new V2(start, end).norm();
+      int dx = Math.abs(start_col - end_col), dy = Math.abs(start_row - end_row);
+      return (dx > dy)
+             ? PathFinder.STRAIGHT_COST * dx 
+               + (PathFinder.DIAGONAL_COST - PathFinder.STRAIGHT_COST) * dy
+             : PathFinder.STRAIGHT_COST * dy 
+               + (PathFinder.DIAGONAL_COST - PathFinder.STRAIGHT_COST) * dx;
     }
   };
   
   public static final AHeuristic MANHATTAN = new AHeuristic()
   {
     @Override
-    public int estimate(V2 start, V2 end)
+    public int estimate(int start_col, int start_row, int end_col, int end_row)
     {
-      V2 s = start, e = end;
-      return (int)(Math.abs(s.x - e.x) + Math.abs(s.y - e.y));
+      return PathFinder.STRAIGHT_COST 
+             * (Math.abs(start_col - end_col) + Math.abs(start_row - end_row));
     }
   };
 }
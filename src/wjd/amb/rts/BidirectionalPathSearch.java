@@ -0,0 +1,166 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Deque;
+
+/**
+ * A PathSearch run from both ends at once, forwards from the start and 
+ * backwards from the end, which stops once the two meet along a path that 
+ * neither can improve upon: on long paths across open terrain each half
+ * explores roughly a quarter of the area a one-way search would.
+ * 
+ * If the end can't be reached the forward search is run on its own, towards
+ * the closest Tile that can be, so the fallback is the same as PathSearch's.
+ * 
+ * The backward search pays for the Tiles it steps onto, which are not quite
+ * those the path steps onto: every path from the start to the end is off by
+ * the same amount, cost(start) - cost(end), which is corrected for.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class BidirectionalPathSearch
+{
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final Tile start_tile, end_tile;
+  // backward cost + offset = forward cost
+  private final int offset;
+  private final PathSearch forward;
+  private final PathSearch backward;
+  private final Tile[] neighbours = new Tile[4];
+  // best meeting point so far, and the cost of the path through it
+  private Tile meeting = null;
+  private int best_cost = Integer.MAX_VALUE;
+
+  /* METHODS */
+
+  // constructors
+
+  public BidirectionalPathSearch(Tile start_tile, Tile end_tile)
+  {
+    this.grid = start_tile.grid;
+    this.start_tile = start_tile;
+    this.end_tile = end_tile;
+    offset = grid.getCost(end_tile) - grid.getCost(start_tile);
+    forward = new PathSearch(start_tile, end_tile, true);
+    
+    // searching backwards from a Tile that can't be reached makes no sense
+    if(grid.isReachable(start_tile, end_tile))
+    {
+      backward = new PathSearch(end_tile, start_tile, true);
+      search();
+    }
+    else
+    {
+      backward = null;
+      forward.step(Integer.MAX_VALUE);
+    }
+  }
+
+  // accessors
+
+  /**
+   * @return the Tiles to walk through, excluding the start, exactly as
+   * PathSearch.getPath would return them.
+   */
+  public Deque<Tile> getPath()
+  {
+    Deque<Tile> result = forward.getPath();
+    if(meeting == null || forward.getStatus() == ESearchStatus.FOUND)
+      return result;
+    
+    // the forward half leads to the meeting point...
+    result.clear();
+    for(SearchState s = forward.getState(meeting); s.previous != null;
+        s = s.previous)
+      result.addFirst(s.tile);
+    
+    // ... and the backward half leads on from there to the end
+    for(SearchState s = backward.getState(meeting).previous; s != null;
+        s = s.previous)
+      result.addLast(s.tile);
+    return result;
+  }
+
+  /* SUBROUTINES */
+
+  private void search()
+  {
+    // stop once neither frontier can lead to anything cheaper
+    while(best_cost > Math.max(forward.getOpenMinimum(),
+                               backward.getOpenMinimum() == Integer.MAX_VALUE
+                               ? Integer.MAX_VALUE
+                               : backward.getOpenMinimum() + offset))
+    {
+      // forwards
+      ESearchStatus status = forward.step(1);
+      if(status != ESearchStatus.IN_PROGRESS)
+      {
+        // either the end was found or it's unreachable: no meeting needed
+        meeting = null;
+        return;
+      }
+      meet(forward.getLastExpanded().tile);
+
+      // backwards
+      status = backward.step(1);
+      if(status == ESearchStatus.FOUND)
+      {
+        // the whole path was found backwards
+        meeting = start_tile;
+        return;
+      }
+      if(status == ESearchStatus.FAILED && meeting == null)
+      {
+        // the end is walled off: fall back as PathSearch would
+        forward.step(Integer.MAX_VALUE);
+        return;
+      }
+      if(status == ESearchStatus.IN_PROGRESS)
+        meet(backward.getLastExpanded().tile);
+    }
+  }
+
+  /**
+   * Check whether the states just opened by one search have been reached by
+   * the other, in which case a path has been found through them.
+   */
+  private void meet(Tile expanded)
+  {
+    check(expanded);
+    int n_neighbours = grid.getNeighbours(expanded, false, neighbours);
+    for(int n = 0; n < n_neighbours; n++)
+      check(neighbours[n]);
+  }
+
+  private void check(Tile tile)
+  {
+    SearchState f = forward.getState(tile), b = backward.getState(tile);
+    if(f == null || b == null)
+      return;
+    // the backward search paid for this Tile, but not for the end
+    int cost = f.currentCost + b.currentCost - grid.getCost(tile) 
+               + grid.getCost(end_tile);
+    if(cost < best_cost)
+    {
+      best_cost = cost;
+      meeting = tile;
+    }
+  }
+}
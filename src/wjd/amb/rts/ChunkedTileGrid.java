@@ -0,0 +1,415 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import wjd.math.Rect;
+import wjd.math.V2;
+
+/**
+ * A grid of Tiles too big to keep in memory, or without any edges at all:
+ * Tiles are created a square chunk at a time, the first time one of them is
+ * asked for, and chunks which haven't been used for a while can be evicted,
+ * their Tiles packed one byte each by an ITileCodec until they are needed
+ * again. A chunk whose Tiles all pack to the same byte takes a single byte.
+ *
+ * Tiles are looked up by grid or pixel position, and iterated over, just as
+ * with a TileGrid, but they don't belong to one: they are created with a
+ * null TileGrid, so they can't be handed to the searches, which need the
+ * arrays of a TileGrid.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class ChunkedTileGrid<T extends Tile> implements Iterable<T>
+{
+  /* CONSTANTS */
+  public static final int DEFAULT_CHUNK_SIZE = 64;
+
+  /* NESTING */
+
+  /**
+   * A square of Tiles, which is either loaded or packed.
+   */
+  private class Chunk
+  {
+    /* ATTRIBUTES */
+    public final int chunk_col, chunk_row;
+    // row by row, or null if the chunk is packed
+    private T[] tiles = null;
+    // the packed Tiles, a single byte if they are all the same, or null if
+    // the Tiles have never been created
+    private byte[] states = null;
+    private boolean touched = true;
+
+    /* METHODS */
+
+    // constructors
+    public Chunk(int chunk_col, int chunk_row)
+    {
+      this.chunk_col = chunk_col;
+      this.chunk_row = chunk_row;
+    }
+
+    // accessors
+
+    /**
+     * @param i the index of a Tile in the chunk, row * chunk size + col.
+     */
+    public T get(int i)
+    {
+      if(tiles == null)
+        load();
+      touched = true;
+      return tiles[i];
+    }
+
+    // mutators
+
+    /**
+     * Pack the Tiles if the chunk hasn't been used since the last time this
+     * was called.
+     *
+     * @return true if the chunk was packed.
+     */
+    public boolean evictIfUntouched()
+    {
+      if(tiles == null || touched)
+      {
+        touched = false;
+        return false;
+      }
+      evict();
+      return true;
+    }
+
+    public void evict()
+    {
+      if(tiles == null)
+        return;
+      byte[] packed = new byte[tiles.length];
+      boolean uniform = true;
+      for(int i = 0; i < tiles.length; i++)
+      {
+        packed[i] = codec.encode(tiles[i]);
+        uniform = uniform && (packed[i] == packed[0]);
+      }
+      states = uniform ? new byte[] { packed[0] } : packed;
+      tiles = null;
+      n_loaded--;
+    }
+
+    private void load()
+    {
+      tiles = (T[])new Tile[chunk_size * chunk_size];
+      for(int i = 0; i < tiles.length; i++)
+      {
+        tiles[i] = (T)factory.create((chunk_row << chunk_shift) + i / chunk_size,
+                                     (chunk_col << chunk_shift) + i % chunk_size,
+                                     null);
+        if(states != null)
+          codec.decode(tiles[i], states[(states.length == 1) ? 0 : i]);
+      }
+      states = null;
+      n_loaded++;
+    }
+  }
+
+  /* ATTRIBUTES */
+  private final ITileType factory;
+  private final ITileCodec codec;
+  private final int chunk_size, chunk_shift, chunk_mask;
+  // false if the grid goes on for ever
+  private final boolean bounded;
+  private final int width, height;
+  private final Rect pixel_area;
+  private final Map<Long, Chunk> chunks = new HashMap<Long, Chunk>();
+  // most lookups are close to the previous one
+  private Chunk last_chunk = null;
+  private int n_loaded = 0;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Create an empty grid: no Tile exists until it's asked for.
+   *
+   * @param size the number of columns and rows of the grid, or null for a
+   * grid without edges, whose coordinates may be any integer, negative too.
+   * @param chunk_size the width and height of a chunk, a power of 2.
+   * @param factory creates the Tiles, with a null TileGrid.
+   * @param codec packs and unpacks the Tiles of evicted chunks.
+   */
+  public ChunkedTileGrid(V2 size, int chunk_size, ITileType factory,
+                         ITileCodec codec)
+  {
+    if(chunk_size <= 0 || (chunk_size & (chunk_size - 1)) != 0)
+      throw new IllegalArgumentException("chunk size " + chunk_size
+                                         + " is not a power of 2");
+    this.factory = factory;
+    this.codec = codec;
+    this.chunk_size = chunk_size;
+    this.chunk_shift = Integer.numberOfTrailingZeros(chunk_size);
+    this.chunk_mask = chunk_size - 1;
+    this.bounded = (size != null);
+    this.width = bounded ? (int)size.x : 0;
+    this.height = bounded ? (int)size.y : 0;
+    this.pixel_area = bounded
+      ? new Rect(V2.ORIGIN, size.clone().floor()).mult(factory.getSize())
+      : null;
+  }
+
+  public ChunkedTileGrid(V2 size, ITileType factory, ITileCodec codec)
+  {
+    this(size, DEFAULT_CHUNK_SIZE, factory, codec);
+  }
+
+  /**
+   * Create a grid without edges.
+   */
+  public ChunkedTileGrid(ITileType factory, ITileCodec codec)
+  {
+    this(null, DEFAULT_CHUNK_SIZE, factory, codec);
+  }
+
+  // accessors
+
+  /**
+   * @return the area covered by the grid in pixels, or null if it has no
+   * edges.
+   */
+  public Rect getPixelArea()
+  {
+    return pixel_area;
+  }
+
+  public int getChunkSize()
+  {
+    return chunk_size;
+  }
+
+  /**
+   * @return the number of chunks whose Tiles are in memory.
+   */
+  public int getLoadedChunkCount()
+  {
+    return n_loaded;
+  }
+
+  /**
+   * @return the number of chunks which exist, loaded or packed.
+   */
+  public int getChunkCount()
+  {
+    return chunks.size();
+  }
+
+  /**
+   * Grab the Tile at the specified grid position, creating or unpacking its
+   * chunk if need be.
+   *
+   * @param col the column of the Tile.
+   * @param row the row of the Tile.
+   * @return the Tile, or null if the position is off the edge of the grid.
+   */
+  public T getTile(int col, int row)
+  {
+    if(bounded && !(col >= 0 && row >= 0 && col < width && row < height))
+      return null;
+    int chunk_col = col >> chunk_shift, chunk_row = row >> chunk_shift;
+    Chunk chunk = last_chunk;
+    if(chunk == null || chunk.chunk_col != chunk_col
+    || chunk.chunk_row != chunk_row)
+      last_chunk = chunk = getChunk(chunk_col, chunk_row);
+    return chunk.get(((row & chunk_mask) << chunk_shift) | (col & chunk_mask));
+  }
+
+  /**
+   * Grab the Tile at the specified "grid" position (col, row).
+   *
+   * @param grid_pos the vector grid-position (col, row) of the desired Tile.
+   * @return the Tile at the specified position or null if the position is
+   * off the edge of the grid.
+   */
+  public T gridToTile(V2 grid_pos)
+  {
+    return getTile((int)Math.floor(grid_pos.x), (int)Math.floor(grid_pos.y));
+  }
+
+  /**
+   * Grab the Tile at the specified "pixel" position (x, y).
+   *
+   * @param pixel_pos the vector pixel-position (x, y) of the desired Tile.
+   * @return the Tile at the specified position or null if the position is
+   * off the edge of the grid.
+   */
+  public T pixelToTile(V2 pixel_pos)
+  {
+    return gridToTile(pixel_pos.clone().scale(factory.getISize()).floor());
+  }
+
+  /**
+   * Check if a position is on the grid, without creating anything.
+   *
+   * @param grid_pos the vector pair of coordinates (col, row) to check.
+   * @return true if the grid has no edges or the position is inside them.
+   */
+  public boolean validGridPos(V2 grid_pos)
+  {
+    return (!bounded || (grid_pos.x >= 0 && grid_pos.y >= 0
+                         && grid_pos.x < width && grid_pos.y < height));
+  }
+
+  // mutators
+
+  /**
+   * Pack the chunks which haven't been used since the last call: calling
+   * this every few seconds keeps only the chunks in use in memory.
+   *
+   * @return the number of chunks packed.
+   */
+  public int evictUntouched()
+  {
+    int n_evicted = 0;
+    for(Chunk chunk : chunks.values())
+      if(chunk.evictIfUntouched())
+        n_evicted++;
+    return n_evicted;
+  }
+
+  /**
+   * Pack every chunk, for instance before saving the game.
+   */
+  public void evictAll()
+  {
+    for(Chunk chunk : chunks.values())
+      chunk.evict();
+  }
+
+  /* SUBROUTINES */
+
+  private static long key(int chunk_col, int chunk_row)
+  {
+    return ((long)chunk_row << 32) | (chunk_col & 0xFFFFFFFFL);
+  }
+
+  private Chunk getChunk(int chunk_col, int chunk_row)
+  {
+    Long key = key(chunk_col, chunk_row);
+    Chunk chunk = chunks.get(key);
+    if(chunk == null)
+    {
+      chunk = new Chunk(chunk_col, chunk_row);
+      chunks.put(key, chunk);
+    }
+    return chunk;
+  }
+
+  /* OVERRIDES -- OBJECT */
+  @Override
+  public String toString()
+  {
+    return "ChunkedTileGrid(" + (bounded ? width + "x" + height : "infinite")
+           + ", " + chunks.size() + " chunks)";
+  }
+
+  /* IMPLEMENTS -- ITERABLE */
+  private class ChunkByChunk implements Iterator<T>
+  {
+    // attributes
+    private final List<Chunk> order = new ArrayList<Chunk>();
+    private int current_chunk = 0, current_tile = -1;
+    private T next = null;
+
+    // methods
+    public ChunkByChunk()
+    {
+      if(bounded)
+      {
+        for(int chunk_row = 0; chunk_row << chunk_shift < height; chunk_row++)
+          for(int chunk_col = 0; chunk_col << chunk_shift < width; chunk_col++)
+            order.add(getChunk(chunk_col, chunk_row));
+      }
+      else
+        order.addAll(chunks.values());
+      advance();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return (next != null);
+    }
+
+    @Override
+    public T next()
+    {
+      if(next == null)
+        throw new NoSuchElementException();
+      T previous = next;
+      advance();
+      return previous;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException("remove not supported.");
+    }
+
+    private void advance()
+    {
+      next = null;
+      while(current_chunk < order.size())
+      {
+        if(++current_tile == chunk_size * chunk_size)
+        {
+          current_chunk++;
+          current_tile = -1;
+          continue;
+        }
+        // the chunks along the edges may stick out of a bounded grid
+        Chunk chunk = order.get(current_chunk);
+        int col = (chunk.chunk_col << chunk_shift) + (current_tile & chunk_mask),
+            row = (chunk.chunk_row << chunk_shift) + (current_tile >> chunk_shift);
+        if(!bounded || (col < width && row < height))
+        {
+          next = chunk.get(current_tile);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Every Tile of a bounded grid, or every Tile created so far if the grid
+   * has no edges, a chunk at a time: chunks are created or unpacked as the
+   * iteration reaches them, so evictUntouched should be called as it goes
+   * if the whole grid doesn't fit in memory.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new ChunkByChunk();
+  }
+}
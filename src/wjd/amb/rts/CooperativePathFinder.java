@@ -0,0 +1,305 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cooperative path-finding for groups of units (Windowed Hierarchical
+ * Cooperative A*): units are planned one after the other, each searching
+ * through space and time and claiming the Tiles it will stand on at each
+ * time step in a shared ReservationTable, so that the units planned after it
+ * go around it or wait for it to pass instead of walking into it.
+ *
+ * Each unit only plans a few steps ahead, a window, beyond which it assumes
+ * it will be able to follow the shortest path: the remaining distance is
+ * read from a FlowField towards its goal, which units sharing a goal share.
+ * A FlowField covers the whole grid, so when a group has more different
+ * goals than can be cached the remaining distance is estimated instead, as
+ * the crow flies.
+ * Units should follow their paths for about half a window, then the group
+ * should be planned again, rotating the order so that none is always last.
+ *
+ * Planning is greedy, in order of priority: a unit boxed in by the units
+ * planned before it goes as far as it can, then stays put even if that means
+ * overlapping another. This mostly happens when many units crowd around the
+ * same goal Tile, so a group should be given one goal per unit.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class CooperativePathFinder
+{
+  /* CONSTANTS */
+  public static final int DEFAULT_WINDOW = 16;
+  private static final int DEFAULT_FIELDS = 64;
+  // the 4 direct neighbours come first, then the diagonals, as in PathFinder
+  private static final int[] D_COL = { 0, -1, 1, 0, -1, 1, -1, 1 };
+  private static final int[] D_ROW = { -1, 0, 0, 1, -1, -1, 1, 1 };
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  private final int window;
+  private final boolean diagonals;
+  private final ReservationTable reservations = new ReservationTable();
+  private final FlowFieldCache distances;
+  private AHeuristic heuristic = null;
+  // the heuristic of the current plan, null to use the FlowFields
+  private AHeuristic active_heuristic;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Create a planner for a grid.
+   *
+   * @param grid the TileGrid the units move on.
+   * @param window the number of time steps each unit plans ahead.
+   * @param diagonals true if units may move diagonally.
+   */
+  public CooperativePathFinder(TileGrid grid, int window, boolean diagonals)
+  {
+    this.grid = grid;
+    this.window = window;
+    this.diagonals = diagonals;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+    distances = new FlowFieldCache(grid, DEFAULT_FIELDS, diagonals);
+  }
+
+  public CooperativePathFinder(TileGrid grid, boolean diagonals)
+  {
+    this(grid, DEFAULT_WINDOW, diagonals);
+  }
+
+  // accessors
+
+  public int getWindow()
+  {
+    return window;
+  }
+
+  // mutators
+
+  /**
+   * Choose how the distance left beyond the window is estimated.
+   *
+   * @param heuristic null (the default) to use the exact distances of a
+   * FlowField per goal, which is best when units share goals, or an estimate
+   * such as a LandmarkHeuristic, which is cheaper when they all have
+   * different goals. With null, groups with more than 64 different goals
+   * fall back to OCTILE, or MANHATTAN without diagonals, since a FlowField
+   * per goal would be rebuilt for every unit of every plan.
+   * @return this, so that multiple operations can be queued.
+   */
+  public CooperativePathFinder setHeuristic(AHeuristic heuristic)
+  {
+    this.heuristic = heuristic;
+    return this;
+  }
+
+  /**
+   * Plan the next window of moves for a group of units, in order of
+   * priority.
+   *
+   * @param starts the Tile each unit is on.
+   * @param goals the Tile each unit wants to reach, in the same order.
+   * @return the Tiles each unit should be on at each of the next time steps,
+   * in the same order: a Tile repeated means the unit waits there. A path is
+   * shorter than the window only if it reaches the goal, where the unit
+   * should stay, or if the unit is boxed in.
+   */
+  public List<Deque<Tile>> plan(List<? extends Tile> starts,
+                                List<? extends Tile> goals)
+  {
+    reservations.clear();
+    // nobody may walk into a unit before it's had a chance to plan, so that
+    // each unit can at least stay where it is for the first step
+    for(int agent = 0; agent < starts.size(); agent++)
+    {
+      reservations.reserve(index(starts.get(agent)), 0, agent);
+      reservations.reserve(index(starts.get(agent)), 1, agent);
+    }
+
+    // a FlowField per goal is only worth it if they can all be cached
+    active_heuristic = heuristic;
+    if(active_heuristic == null
+    && new HashSet<Tile>(goals).size() > DEFAULT_FIELDS)
+      active_heuristic = diagonals ? AHeuristic.OCTILE : AHeuristic.MANHATTAN;
+
+    List<Deque<Tile>> paths = new ArrayList<Deque<Tile>>(starts.size());
+    for(int agent = 0; agent < starts.size(); agent++)
+      paths.add(search(agent, starts.get(agent), goals.get(agent)));
+    return paths;
+  }
+
+  /* SUBROUTINES */
+
+  private int index(Tile tile)
+  {
+    return (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+  }
+
+  private boolean isPathable(int col, int row)
+  {
+    return grid.isPathable(col, row);
+  }
+
+  private boolean isFree(int tile, int time, int agent)
+  {
+    int owner = reservations.getOwner(tile, time);
+    return (owner == ReservationTable.NONE || owner == agent);
+  }
+
+  /**
+   * Can an agent step from one Tile to another between two time steps?
+   * Not if either Tile is claimed by someone else, or if the agent would
+   * swap places with someone.
+   */
+  private boolean canMove(int from, int to, int time, int agent)
+  {
+    if(!isFree(to, time + 1, agent))
+      return false;
+    int coming = reservations.getOwner(to, time);
+    return (coming == ReservationTable.NONE || coming == agent
+            || reservations.getOwner(from, time + 1) != coming);
+  }
+
+  /**
+   * Search through space and time for the best way to spend the window.
+   */
+  private Deque<Tile> search(int agent, Tile start, Tile goal)
+  {
+    goal = grid.getNearestReachable(start, goal);
+    FlowField field = (active_heuristic == null) ? distances.get(goal) : null;
+    int goal_index = index(goal);
+
+    // states are Tiles at time steps
+    Map<Long, SearchState> states = new HashMap<Long, SearchState>();
+    SearchHeap open = new SearchHeap();
+    SearchState first = new SearchState(start, remaining(field, start, goal));
+    states.put((long)index(start), first);
+    open.add(first);
+
+    // if the unit gets boxed in, it goes as far as it can
+    SearchState last = first;
+    while(!open.isEmpty())
+    {
+      SearchState x = open.poll();
+      x.closed = true;
+      if(x.time > last.time)
+        last = x;
+
+      // stop at the goal if we can stay there, or at the edge of the window
+      if(x.time == window || (x.tile == goal
+                              && isFreeFrom(goal_index, x.time, agent)))
+      {
+        last = x;
+        break;
+      }
+
+      // waiting is always an option, then try each neighbour
+      int from = index(x.tile), col = from % width, row = from / width;
+      if(isFree(from, x.time + 1, agent))
+        expand(states, open, x, x.tile, PathFinder.STRAIGHT_COST, field,
+               goal);
+      for(int d = 0; d < (diagonals ? 8 : 4); d++)
+      {
+        int n_col = col + D_COL[d], n_row = row + D_ROW[d],
+            to = n_row * width + n_col;
+        // don't cut corners
+        if(!isPathable(n_col, n_row)
+        || (d >= 4 && !(isPathable(n_col, row) && isPathable(col, n_row)))
+        || !canMove(from, to, x.time, agent))
+          continue;
+        int cost = grid.getCost(n_col, n_row);
+        expand(states, open, x, grid.tiles[n_row][n_col],
+               (d < 4) ? cost : PathFinder.diagonal(cost), field, goal);
+      }
+    }
+
+    // claim the Tiles along the way, and the last one for as long as nobody
+    // else has
+    Deque<Tile> result = new LinkedList<Tile>();
+    for(SearchState s = last; s != first; s = s.previous)
+    {
+      result.addFirst(s.tile);
+      reservations.reserve(index(s.tile), s.time, agent);
+    }
+    for(int time = last.time + 1; time <= window; time++)
+      if(isFree(index(last.tile), time, agent))
+        reservations.reserve(index(last.tile), time, agent);
+    return result;
+  }
+
+  private boolean isFreeFrom(int tile, int time, int agent)
+  {
+    for(; time <= window; time++)
+      if(!isFree(tile, time, agent))
+        return false;
+    return true;
+  }
+
+  private int remaining(FlowField field, Tile tile, Tile goal)
+  {
+    if(field == null)
+      return active_heuristic.estimate(tile.grid_position,
+                                       goal.grid_position);
+    int cost = field.getCost(tile);
+    return (cost == FlowField.UNREACHABLE) ? 0 : cost;
+  }
+
+  private void expand(Map<Long, SearchState> states, SearchHeap open,
+                      SearchState src_state, Tile t, int step_cost,
+                      FlowField field, Tile goal)
+  {
+    Long key = ((long)(src_state.time + 1) << 32) | index(t);
+    SearchState dest_state = states.get(key);
+
+    // create states as needed
+    if(dest_state == null)
+    {
+      dest_state = new SearchState(t, remaining(field, t, goal));
+      states.put(key, dest_state);
+    }
+
+    // closed states are no longer under consideration
+    else if(dest_state.closed)
+      return;
+
+    // states not yet opened always link back to the source
+    if(!open.contains(dest_state))
+    {
+      dest_state.setParent(src_state, step_cost);
+      open.add(dest_state);
+    }
+    // states already open link back to the source only if it's better
+    else if(src_state.currentCost + step_cost < dest_state.currentCost)
+    {
+      dest_state.setParent(src_state, step_cost);
+      open.update(dest_state);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * The strategy a PathFinder uses to explore the grid.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public enum ESearchMode
+{
+  /**
+   * Plain A*, expanding every neighbour of every Tile.
+   */
+  A_STAR,
+  /**
+   * Jump Point Search: A* which skips over runs of Tiles that could be reached
+   * by an equally short path, expanding only the Tiles where a turn may be
+   * needed. It relies on every step costing the same, so it is only suitable
+   * for grids where Tiles are either pathable or not: Tile costs are ignored.
+   */
+  JUMP_POINT
+};
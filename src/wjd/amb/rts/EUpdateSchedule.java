@@ -0,0 +1,47 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * How a TileUpdater orders the updates of Tiles run in parallel, depending
+ * on what the updates read: whatever the schedule, an update may only write
+ * to its own Tile.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public enum EUpdateSchedule
+{
+  /**
+   * Every Tile at once, for updates which only look at their own Tile, such
+   * as resources growing back.
+   */
+  INDEPENDENT,
+  /**
+   * Four phases, each updating one Tile in four in a 2 x 2 pattern, so that
+   * no two Tiles updated at the same time are neighbours, even diagonally:
+   * an update may read its neighbours, and sees those of the earlier phases
+   * already updated and those of the later phases not yet.
+   */
+  CHECKERBOARD,
+  /**
+   * Every Tile at once, then every Tile which is an IBufferedTile commits
+   * the state it has just worked out: updates read their neighbours' state
+   * from before the pass, as in a cellular automaton such as fire spreading.
+   */
+  DOUBLE_BUFFERED
+};
@@ -0,0 +1,220 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+
+/**
+ * Directions towards a single goal from every Tile that can reach it, so that
+ * any number of units heading for the same place can share one search: each
+ * unit then only needs an O(1) look-up per tick to know where to go next.
+ *
+ * The field is built by a single Dijkstra search outwards from the goal into
+ * an integration field (the cost of reaching the goal from each Tile), from
+ * which the direction field is derived.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class FlowField
+{
+  /* CONSTANTS */
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+  public static final byte NO_DIRECTION = -1;
+  // the 4 direct neighbours come first, then the diagonals, as in PathFinder
+  private static final int[] D_COL = { 0, -1, 1, 0, -1, 1, -1, 1 };
+  private static final int[] D_ROW = { -1, 0, 0, 1, -1, -1, 1, 1 };
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final Tile goal;
+  private final int width, height;
+  private final boolean diagonals;
+  private final int[] cost;
+  private final byte[] direction;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Build the field for a goal.
+   *
+   * @param goal the Tile that all the units want to reach.
+   * @param diagonals true if units may move diagonally, without cutting the
+   * corners of Tiles which are not pathable.
+   */
+  public FlowField(Tile goal, boolean diagonals)
+  {
+    this.goal = goal;
+    this.grid = goal.grid;
+    this.diagonals = diagonals;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+    cost = new int[width * height];
+    direction = new byte[width * height];
+    integrate();
+    orient();
+  }
+
+  // accessors
+
+  public Tile getGoal()
+  {
+    return goal;
+  }
+
+  /**
+   * @param tile a Tile of the grid.
+   * @return the cost of reaching the goal from the Tile, or UNREACHABLE.
+   */
+  public int getCost(Tile tile)
+  {
+    return cost[index(tile)];
+  }
+
+  /**
+   * @param tile a Tile of the grid.
+   * @return the index of the direction to go in, in D_COL and D_ROW order, or
+   * NO_DIRECTION if the Tile is the goal or can't reach it.
+   */
+  public byte getDirection(Tile tile)
+  {
+    return direction[index(tile)];
+  }
+
+  /**
+   * @param tile the Tile a unit is on.
+   * @return the Tile the unit should move to next, or null if it is already
+   * on the goal or can't reach it.
+   */
+  public Tile getNext(Tile tile)
+  {
+    int d = direction[index(tile)];
+    return (d == NO_DIRECTION)
+           ? null
+           : grid.tiles[(int)tile.grid_position.y + D_ROW[d]]
+                       [(int)tile.grid_position.x + D_COL[d]];
+  }
+
+  /**
+   * Check whether a change to a Tile could alter this field: only Tiles that
+   * were reached, or that border Tiles that were reached, can.
+   *
+   * @param tile the Tile which has changed.
+   * @return true if the field should be rebuilt.
+   */
+  public boolean isAffectedBy(Tile tile)
+  {
+    int col = (int)tile.grid_position.x, row = (int)tile.grid_position.y;
+    for(int d = -1; d < 8; d++)
+    {
+      int n_col = col + (d < 0 ? 0 : D_COL[d]),
+          n_row = row + (d < 0 ? 0 : D_ROW[d]);
+      if(n_col >= 0 && n_row >= 0 && n_col < width && n_row < height
+      && cost[n_row * width + n_col] != UNREACHABLE)
+        return true;
+    }
+    return false;
+  }
+
+  /* SUBROUTINES */
+
+  private int index(Tile tile)
+  {
+    return (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+  }
+
+  private boolean isPathable(int col, int row)
+  {
+    return grid.isPathable(col, row);
+  }
+
+  /**
+   * Can a unit step from one Tile in a given direction?
+   */
+  private boolean canStep(int col, int row, int d)
+  {
+    int d_col = D_COL[d], d_row = D_ROW[d];
+    return isPathable(col + d_col, row + d_row)
+           && (d < 4 || (isPathable(col + d_col, row)
+                         && isPathable(col, row + d_row)));
+  }
+
+  /**
+   * @return the cost of stepping onto a Tile in direction d, or in the 
+   * opposite direction, which is just as diagonal.
+   */
+  private int stepCost(int onto, int d)
+  {
+    int cost = grid.getCost(onto % width, onto / width);
+    return (d < 4) ? cost : PathFinder.diagonal(cost);
+  }
+
+  private void integrate()
+  {
+    // Dijkstra outwards from the goal: no heuristic, so ties don't matter
+    int[] no_estimate = new int[cost.length];
+    IntHeap open = new IntHeap(cost, no_estimate);
+    Arrays.fill(cost, UNREACHABLE);
+    int g = index(goal), n_dirs = diagonals ? 8 : 4;
+    cost[g] = 0;
+    open.push(g);
+
+    while(!open.isEmpty())
+    {
+      int x = open.pop(), col = x % width, row = x / width;
+      for(int d = 0; d < n_dirs; d++)
+      {
+        // moves are symmetric, so n can step onto x if x can step onto n
+        if(!canStep(col, row, d))
+          continue;
+        int n = x + D_ROW[d] * width + D_COL[d], 
+            c = cost[x] + stepCost(x, d);
+        if(c >= cost[n])
+          continue;
+        boolean queued = (cost[n] != UNREACHABLE);
+        cost[n] = c;
+        if(queued)
+          open.update(n);
+        else
+          open.push(n);
+      }
+    }
+  }
+
+  private void orient()
+  {
+    int n_dirs = diagonals ? 8 : 4;
+    for(int row = 0, i = 0; row < height; row++)
+    for(int col = 0; col < width; col++, i++)
+    {
+      // follow the step that the integration took to get here
+      byte best = NO_DIRECTION;
+      if(cost[i] != UNREACHABLE && cost[i] != 0)
+        for(byte d = 0; d < n_dirs && best == NO_DIRECTION; d++)
+          if(canStep(col, row, d))
+          {
+            int c = cost[i + D_ROW[d] * width + D_COL[d]];
+            if(c != UNREACHABLE 
+            && c + stepCost(i + D_ROW[d] * width + D_COL[d], d) == cost[i])
+              best = d;
+          }
+      direction[i] = best;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * FlowFields for recently used goals, so that units ordered to the same place
+ * share the same field. Fields are dropped when a Tile they depend on changes
+ * (see TileGrid.tileChanged) and rebuilt the next time they are asked for.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class FlowFieldCache implements ITileListener
+{
+  /* ATTRIBUTES */
+  private final boolean diagonals;
+  private final Map<Tile, FlowField> fields;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Create an empty cache and start listening for changes to the grid.
+   *
+   * @param grid the TileGrid the fields are built over.
+   * @param capacity the maximum number of fields to keep: the least recently
+   * used are discarded first.
+   * @param diagonals true if units may move diagonally.
+   */
+  public FlowFieldCache(TileGrid grid, final int capacity, boolean diagonals)
+  {
+    this.diagonals = diagonals;
+    fields = new LinkedHashMap<Tile, FlowField>(16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Tile, FlowField> eldest)
+      {
+        return (size() > capacity);
+      }
+    };
+    grid.addListener(this);
+  }
+
+  // accessors
+
+  /**
+   * Get the field leading to a goal, building it if need be.
+   *
+   * @param goal the Tile that the units want to reach.
+   * @return the field for this goal.
+   */
+  public FlowField get(Tile goal)
+  {
+    FlowField field = fields.get(goal);
+    if(field == null)
+    {
+      field = new FlowField(goal, diagonals);
+      fields.put(goal, field);
+    }
+    return field;
+  }
+
+  // mutators
+
+  public void clear()
+  {
+    fields.clear();
+  }
+
+  /* IMPLEMENTS -- ITILELISTENER */
+
+  @Override
+  public void tileChanged(Tile tile)
+  {
+    Iterator<FlowField> i = fields.values().iterator();
+    while(i.hasNext())
+      if(i.next().isAffectedBy(tile))
+        i.remove();
+  }
+}
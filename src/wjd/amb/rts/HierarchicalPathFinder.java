@@ -0,0 +1,567 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+
+/**
+ * Hierarchical path-finding (HPA*): the grid is cut into square clusters,
+ * the entrances between neighbouring clusters become the nodes of a small
+ * abstract graph, and the cost of crossing each cluster from one entrance to
+ * another is precomputed. Long queries are answered on the abstract graph,
+ * giving a list of waypoints, and only the leg a unit is about to walk needs
+ * to be refined into Tiles.
+ *
+ * The abstraction is 4-connected, like PathSearch, and weighted by the cost
+ * of the Tiles stepped onto (see Tile.getCost), both inside the clusters and
+ * between them, so the waypoints avoid dear terrain just as the refined legs
+ * do. When a Tile changes (see TileGrid.tileChanged) only its cluster, and
+ * the neighbour sharing its border if it is on one, are rebuilt before the
+ * next query.
+ *
+ * Paths only cross between clusters at fixed points of each entrance, so
+ * they aren't optimal: a few percent dearer than PathSearch's on average,
+ * and up to a third on weighted maps where a cheap way across a border
+ * doesn't go through one of them.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class HierarchicalPathFinder implements ITileListener
+{
+  /* CONSTANTS */
+  private static final int NONE = -1;
+  // entrances narrower than this get a single transition in their middle
+  private static final int MAX_NARROW_ENTRANCE = 6;
+
+  /* NESTING */
+  private static class Cluster
+  {
+    // attributes
+    public final int col, row, w, h;
+    public int[] nodes = new int[0];      // Tile indices of the entrances
+    public int[][] partners;              // entrances facing each node
+    public int[] costs;                   // nodes x nodes crossing costs
+    public boolean dirty = true;
+
+    // methods
+    public Cluster(int col, int row, int w, int h)
+    {
+      this.col = col;
+      this.row = row;
+      this.w = w;
+      this.h = h;
+    }
+
+    public int indexOf(int tile)
+    {
+      for(int i = 0; i < nodes.length; i++)
+        if(nodes[i] == tile)
+          return i;
+      return NONE;
+    }
+  }
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final PathFinder finder;
+  private final int width, height, cluster_size, clusters_x, clusters_y;
+  private final Cluster[] clusters;
+  private AHeuristic heuristic = AHeuristic.MANHATTAN;
+  // Dijkstra inside a cluster, over local indices
+  private final int[] cross_cost, cross_tie;
+  private final IntHeap cross_open;
+  // build scratch-space
+  private final int[] new_nodes, new_partners;
+  // abstract search, over identifiers (cluster * slots + node)
+  private final int slots, start_id, end_id;
+  private final int[] visited, current_cost, total_cost, remaining_cost,
+                      previous;
+  private final boolean[] closed;
+  private final IntHeap open;
+  private int generation = 0;
+  // current query
+  private int start, end;
+  private Cluster start_cluster, end_cluster;
+  private int[] start_costs, end_costs;
+  private int direct_cost;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Build the abstraction of a grid, and keep it up to date from then on.
+   *
+   * @param grid the TileGrid to search.
+   * @param cluster_size the width and height of the clusters, in Tiles.
+   */
+  public HierarchicalPathFinder(TileGrid grid, int cluster_size)
+  {
+    this.grid = grid;
+    this.cluster_size = cluster_size;
+    finder = new PathFinder(grid);
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+
+    // cut the grid into clusters
+    clusters_x = (width + cluster_size - 1) / cluster_size;
+    clusters_y = (height + cluster_size - 1) / cluster_size;
+    clusters = new Cluster[clusters_x * clusters_y];
+    for(int cy = 0; cy < clusters_y; cy++)
+    for(int cx = 0; cx < clusters_x; cx++)
+    {
+      int col = cx * cluster_size, row = cy * cluster_size;
+      clusters[cy * clusters_x + cx] = new Cluster(col, row,
+        Math.min(cluster_size, width - col), Math.min(cluster_size, height - row));
+    }
+
+    // scratch-space
+    int area = cluster_size * cluster_size;
+    cross_cost = new int[area];
+    cross_tie = new int[area];
+    cross_open = new IntHeap(cross_cost, cross_tie);
+    slots = 4 * cluster_size;
+    new_nodes = new int[slots];
+    new_partners = new int[slots];
+    start_costs = new int[slots];
+    end_costs = new int[slots];
+
+    // two extra identifiers for the start and the end of each query
+    int n_ids = clusters.length * slots + 2;
+    start_id = n_ids - 2;
+    end_id = n_ids - 1;
+    visited = new int[n_ids];
+    current_cost = new int[n_ids];
+    total_cost = new int[n_ids];
+    remaining_cost = new int[n_ids];
+    previous = new int[n_ids];
+    closed = new boolean[n_ids];
+    open = new IntHeap(total_cost, remaining_cost);
+
+    // precompute everything and listen for changes
+    rebuildDirty();
+    grid.addListener(this);
+  }
+
+  // accessors
+
+  /**
+   * Find a path on the abstract graph.
+   *
+   * @param start_tile the Tile to start from.
+   * @param end_tile the Tile we want to reach.
+   * @return the waypoints to go through, excluding the start and including
+   * the end, each of which is easy to reach from the previous one. If the end
+   * can't be reached the path leads to the closest Tile that can, as 
+   * PathSearch's does.
+   */
+  public Deque<Tile> getWaypoints(Tile start_tile, Tile end_tile)
+  {
+    rebuildDirty();
+    end_tile = grid.getNearestReachable(start_tile, end_tile);
+    Deque<Tile> result = new LinkedList<Tile>();
+    start = index(start_tile);
+    end = index(end_tile);
+    if(start == end)
+      return result;
+
+    // start at the end, trace backwards adding waypoints
+    if(end_tile.isPathable() && search())
+      for(int id = previous[end_id]; id != start_id; id = previous[id])
+        if(nodeTile(id) != start)
+          result.addFirst(tile(nodeTile(id)));
+    result.addLast(end_tile);
+    return result;
+  }
+
+  /**
+   * Refine the next leg of an abstract path into Tiles.
+   *
+   * @param from the Tile the unit is currently on.
+   * @param waypoints the remaining waypoints: the first one is removed.
+   * @param result the container to clear then fill with the Tiles to walk
+   * through to reach the first waypoint.
+   * @return the result container, so that multiple operations can be queued.
+   */
+  public Deque<Tile> refine(Tile from, Deque<Tile> waypoints,
+                            Deque<Tile> result)
+  {
+    result.clear();
+    Tile next = waypoints.pollFirst();
+    return (next == null) ? result : finder.getPath(from, next, result);
+  }
+
+  /**
+   * Search for a path and refine all of it at once, equivalent to
+   * new PathSearch(start, end).getPath().
+   *
+   * @param start_tile the Tile to start from.
+   * @param end_tile the Tile we want to reach.
+   * @return the Tiles to walk through, excluding the start and including the
+   * end.
+   */
+  public Deque<Tile> getPath(Tile start_tile, Tile end_tile)
+  {
+    Deque<Tile> waypoints = getWaypoints(start_tile, end_tile),
+                leg = new LinkedList<Tile>(),
+                result = new LinkedList<Tile>();
+    Tile from = start_tile;
+    while(!waypoints.isEmpty())
+    {
+      refine(from, waypoints, leg);
+      if(!leg.isEmpty())
+      {
+        result.addAll(leg);
+        from = leg.getLast();
+      }
+    }
+    return result;
+  }
+
+  // mutators
+
+  public HierarchicalPathFinder setHeuristic(AHeuristic heuristic)
+  {
+    this.heuristic = heuristic;
+    return this;
+  }
+
+  /* IMPLEMENTS -- ITILELISTENER */
+
+  @Override
+  public void tileChanged(Tile tile)
+  {
+    int col = (int)tile.grid_position.x, row = (int)tile.grid_position.y,
+        cx = col / cluster_size, cy = row / cluster_size;
+    clusters[cy * clusters_x + cx].dirty = true;
+
+    // entrances on a border are shared with the cluster on the other side
+    if(col % cluster_size == 0 && cx > 0)
+      clusters[cy * clusters_x + cx - 1].dirty = true;
+    if(col % cluster_size == cluster_size - 1 && cx < clusters_x - 1)
+      clusters[cy * clusters_x + cx + 1].dirty = true;
+    if(row % cluster_size == 0 && cy > 0)
+      clusters[(cy - 1) * clusters_x + cx].dirty = true;
+    if(row % cluster_size == cluster_size - 1 && cy < clusters_y - 1)
+      clusters[(cy + 1) * clusters_x + cx].dirty = true;
+  }
+
+  /* SUBROUTINES */
+
+  private int index(Tile tile)
+  {
+    return (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+  }
+
+  private Tile tile(int i)
+  {
+    return grid.tiles[i / width][i % width];
+  }
+
+  private boolean isPathable(int i)
+  {
+    return grid.isPathable(i % width, i / width);
+  }
+
+  private Cluster clusterOf(int i)
+  {
+    return clusters[(i / width / cluster_size) * clusters_x
+                    + (i % width) / cluster_size];
+  }
+
+  // building
+
+  private void rebuildDirty()
+  {
+    for(Cluster c : clusters)
+      if(c.dirty)
+        rebuild(c);
+  }
+
+  private void rebuild(Cluster c)
+  {
+    // find the entrances on each of the 4 borders
+    int n_nodes = 0, last_col = c.col + c.w - 1, last_row = c.row + c.h - 1;
+    if(c.row > 0)
+      n_nodes = scanBorder(c, n_nodes, c.row * width + c.col, 1, -width, c.w);
+    if(last_row < height - 1)
+      n_nodes = scanBorder(c, n_nodes, last_row * width + c.col, 1, width, c.w);
+    if(c.col > 0)
+      n_nodes = scanBorder(c, n_nodes, c.row * width + c.col, width, -1, c.h);
+    if(last_col < width - 1)
+      n_nodes = scanBorder(c, n_nodes, c.row * width + last_col, width, 1, c.h);
+
+    // a corner Tile may be an entrance on two borders: merge duplicates
+    c.nodes = new int[n_nodes];
+    c.partners = new int[n_nodes][];
+    int k = 0;
+    for(int i = 0; i < n_nodes; i++)
+    {
+      int j = 0;
+      while(j < k && c.nodes[j] != new_nodes[i])
+        j++;
+      if(j < k)
+        c.partners[j] = new int[] { c.partners[j][0], new_partners[i] };
+      else
+      {
+        c.nodes[k] = new_nodes[i];
+        c.partners[k++] = new int[] { new_partners[i] };
+      }
+    }
+    if(k < n_nodes)
+    {
+      c.nodes = Arrays.copyOf(c.nodes, k);
+      c.partners = Arrays.copyOf(c.partners, k);
+    }
+
+    // precompute the cost of crossing from each entrance to each other
+    c.costs = new int[k * k];
+    for(int i = 0; i < k; i++)
+    {
+      crossCluster(c, c.nodes[i]);
+      for(int j = 0; j < k; j++)
+        c.costs[i * k + j] = cross_cost[local(c, c.nodes[j])];
+    }
+    c.dirty = false;
+  }
+
+  /**
+   * Find the runs of pathable Tiles facing pathable Tiles along a border,
+   * adding one transition for each narrow run and one at each end of wide
+   * ones: this is deterministic, so the clusters on either side agree.
+   */
+  private int scanBorder(Cluster c, int n_nodes, int first, int along,
+                         int across, int length)
+  {
+    int run_start = NONE;
+    for(int i = 0; i <= length; i++)
+    {
+      int tile = first + i * along;
+      boolean passable = (i < length && isPathable(tile)
+                          && isPathable(tile + across));
+      if(passable && run_start == NONE)
+        run_start = i;
+      else if(!passable && run_start != NONE)
+      {
+        int run_end = i - 1;
+        if(run_end - run_start + 1 < MAX_NARROW_ENTRANCE)
+          n_nodes = addTransition(n_nodes, first, along, across,
+                                  (run_start + run_end) / 2);
+        else
+        {
+          n_nodes = addTransition(n_nodes, first, along, across, run_start);
+          n_nodes = addTransition(n_nodes, first, along, across, run_end);
+        }
+        run_start = NONE;
+      }
+    }
+    return n_nodes;
+  }
+
+  private int addTransition(int n_nodes, int first, int along, int across,
+                            int i)
+  {
+    new_nodes[n_nodes] = first + i * along;
+    new_partners[n_nodes] = first + i * along + across;
+    return n_nodes + 1;
+  }
+
+  private int local(Cluster c, int i)
+  {
+    return (i / width - c.row) * cluster_size + (i % width - c.col);
+  }
+
+  /**
+   * Dijkstra from a Tile to every other Tile of its cluster, without leaving
+   * the cluster, each step costing what the Tile stepped onto costs: the
+   * results are left in cross_cost.
+   */
+  private void crossCluster(Cluster c, int source)
+  {
+    Arrays.fill(cross_cost, NONE);
+    cross_open.clear();
+    int s = local(c, source);
+    cross_cost[s] = 0;
+    cross_open.push(s);
+    while(!cross_open.isEmpty())
+    {
+      int l = cross_open.pop(), col = c.col + l % cluster_size,
+          row = c.row + l / cluster_size, x = row * width + col;
+      if(row > c.row)
+        visit(c, x - width, l);
+      if(row < c.row + c.h - 1)
+        visit(c, x + width, l);
+      if(col > c.col)
+        visit(c, x - 1, l);
+      if(col < c.col + c.w - 1)
+        visit(c, x + 1, l);
+    }
+  }
+
+  private void visit(Cluster c, int i, int from)
+  {
+    int l = local(c, i);
+    boolean reached = (cross_cost[l] != NONE);
+    // Tiles reached and no longer open are settled
+    if((reached && !cross_open.contains(l)) || !isPathable(i))
+      return;
+    int cost = cross_cost[from] + grid.getCost(i % width, i / width);
+    if(!reached)
+    {
+      cross_cost[l] = cost;
+      cross_open.push(l);
+    }
+    else if(cost < cross_cost[l])
+    {
+      cross_cost[l] = cost;
+      cross_open.update(l);
+    }
+  }
+
+  // abstract search
+
+  private int nodeTile(int id)
+  {
+    return (id == start_id) ? start
+           : (id == end_id) ? end
+           : clusters[id / slots].nodes[id % slots];
+  }
+
+  private int nodeId(int tile)
+  {
+    Cluster c = clusterOf(tile);
+    int i = c.indexOf(tile);
+    return (i == NONE) ? NONE : clusterIndex(c) * slots + i;
+  }
+
+  private int estimateCost(int id)
+  {
+    int i = nodeTile(id);
+    return heuristic.estimate(i % width, i / width, end % width, end / width);
+  }
+
+  private boolean search()
+  {
+    // connect the start and end to the entrances of their clusters
+    start_cluster = clusterOf(start);
+    end_cluster = clusterOf(end);
+    crossCluster(start_cluster, start);
+    start_costs = connect(start_cluster, start_costs);
+    direct_cost = (start_cluster == end_cluster)
+                  ? cross_cost[local(start_cluster, end)]
+                  : NONE;
+    crossCluster(end_cluster, end);
+    end_costs = connect(end_cluster, end_costs);
+
+    // reset
+    if(++generation == Integer.MAX_VALUE)
+    {
+      Arrays.fill(visited, 0);
+      generation = 1;
+    }
+    open.clear();
+    touch(start_id);
+    current_cost[start_id] = 0;
+    total_cost[start_id] = remaining_cost[start_id];
+    open.push(start_id);
+
+    while(!open.isEmpty())
+    {
+      int x = open.pop();
+      if(x == end_id)
+        return true;
+      closed[x] = true;
+
+      if(x == start_id)
+      {
+        // leave the start for one of the entrances of its cluster
+        int base = clusterIndex(start_cluster) * slots;
+        for(int j = 0; j < start_cluster.nodes.length; j++)
+          if(start_costs[j] != NONE)
+            expand(x, base + j, start_costs[j]);
+        if(direct_cost != NONE)
+          expand(x, end_id, direct_cost);
+        continue;
+      }
+
+      // cross the cluster to another entrance
+      Cluster c = clusters[x / slots];
+      int i = x % slots, k = c.nodes.length, base = x - i;
+      for(int j = 0; j < k; j++)
+        if(j != i && c.costs[i * k + j] != NONE)
+          expand(x, base + j, c.costs[i * k + j]);
+
+      // or leave the cluster through the entrance
+      for(int p : c.partners[i])
+      {
+        int id = nodeId(p);
+        if(id != NONE)
+          expand(x, id, grid.getCost(p % width, p / width));
+      }
+
+      // or go to the end if it's in the same cluster
+      if(c == end_cluster && end_costs[i] != NONE)
+        expand(x, end_id, end_costs[i]);
+    }
+
+    // fail!
+    return false;
+  }
+
+  private int clusterIndex(Cluster c)
+  {
+    return (c.row / cluster_size) * clusters_x + c.col / cluster_size;
+  }
+
+  private int[] connect(Cluster c, int[] costs)
+  {
+    if(costs.length < c.nodes.length)
+      costs = new int[c.nodes.length];
+    for(int j = 0; j < c.nodes.length; j++)
+      costs[j] = cross_cost[local(c, c.nodes[j])];
+    return costs;
+  }
+
+  private void touch(int id)
+  {
+    visited[id] = generation;
+    closed[id] = false;
+    previous[id] = NONE;
+    remaining_cost[id] = estimateCost(id);
+  }
+
+  private void expand(int src, int dest, int step_cost)
+  {
+    int cost = current_cost[src] + step_cost;
+    if(visited[dest] != generation)
+      touch(dest);
+    else if(closed[dest] || cost >= current_cost[dest])
+      return;
+
+    boolean was_open = (previous[dest] != NONE);
+    previous[dest] = src;
+    current_cost[dest] = cost;
+    total_cost[dest] = cost + remaining_cost[dest];
+    if(was_open)
+      open.update(dest);
+    else
+      open.push(dest);
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * A Tile which keeps two copies of its state, so that its update can work
+ * out the next state from the current state of its neighbours without
+ * disturbing theirs, see EUpdateSchedule.DOUBLE_BUFFERED.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public interface IBufferedTile
+{
+  /* INTERFACE */
+  
+  /**
+   * Make the state worked out by the last update the current state. Called
+   * once every Tile of the grid has been updated.
+   */
+  public void commit();
+}
@@ -0,0 +1,39 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Deque;
+
+/**
+ * Something waiting for the result of a PathRequest.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public interface IPathListener
+{
+  /* INTERFACE */
+  
+  /**
+   * Called from PathService.update, on the game thread, once a path is ready.
+   * 
+   * @param request the request which has been completed.
+   * @param path the Tiles to walk through, as PathSearch.getPath would have
+   * returned them, or null if the search failed.
+   */
+  public void pathFound(PathRequest request, Deque<Tile> path);
+}
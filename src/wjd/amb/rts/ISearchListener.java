@@ -0,0 +1,39 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * Something collecting statistics about path searches, see
+ * PathSearch.setListener.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public interface ISearchListener
+{
+  /* INTERFACE */
+  
+  /**
+   * Called once a PathSearch is over, on whichever thread ran it: searches
+   * may be run on several threads at once, so this must be thread-safe. Only
+   * PathSearch reports here: the PathFinder behind PathService doesn't, so
+   * the paths it finds aren't counted.
+   * 
+   * @param search the search which has just found a path or given up.
+   */
+  public void searchFinished(PathSearch search);
+}
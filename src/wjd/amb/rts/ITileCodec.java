@@ -0,0 +1,44 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * Packs the state of a Tile, such as its terrain, into a single byte, so
+ * that a ChunkedTileGrid can drop the Tile objects of chunks nobody is
+ * looking at and recreate them later.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public interface ITileCodec
+{
+  /* INTERFACE */
+  
+  /**
+   * @param tile the Tile to pack.
+   * @return everything needed to restore the Tile later.
+   */
+  public byte encode(Tile tile);
+  
+  /**
+   * Restore the state of a Tile.
+   * 
+   * @param tile a Tile freshly created by the ITileType of the grid.
+   * @param state what encode returned for the Tile it replaces.
+   */
+  public void decode(Tile tile, byte state);
+}
@@ -0,0 +1,36 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * Something which needs to know when the Tiles of a TileGrid change, 
+ * typically a structure derived from the grid which must be kept up to date.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public interface ITileListener
+{
+  /* INTERFACE */
+  
+  /**
+   * Called when the state of a Tile (for instance its pathability) changes.
+   * 
+   * @param tile the Tile which has changed.
+   */
+  public void tileChanged(Tile tile);
+}
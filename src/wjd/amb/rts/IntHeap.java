@@ -0,0 +1,192 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * Indexed binary min-heap of integer identifiers (typically Tile indices),
+ * the SearchHeap of the array-based searches. Identifiers are ordered by the
+ * total cost estimate they have in an array owned by the search, ties being
+ * broken by their remaining cost estimate, just like SearchState.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+class IntHeap
+{
+  /* ATTRIBUTES */
+  private final int[] total_cost;
+  private final int[] remaining_cost;
+  private final int[] heap;
+  private final int[] heap_index;
+  private int size = 0;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Create a heap which can hold any identifier in [0, total_cost.length).
+   *
+   * @param total_cost the primary key of each identifier, lowest first.
+   * @param remaining_cost the secondary key of each identifier, lowest first.
+   */
+  public IntHeap(int[] total_cost, int[] remaining_cost)
+  {
+    this.total_cost = total_cost;
+    this.remaining_cost = remaining_cost;
+    heap = new int[total_cost.length];
+    heap_index = new int[total_cost.length];
+  }
+
+  // accessors
+
+  public boolean isEmpty()
+  {
+    return (size == 0);
+  }
+
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the cheapest identifier, without removing it.
+   */
+  public int peek()
+  {
+    return heap[0];
+  }
+
+  /**
+   * Check if an identifier is currently in the heap.
+   *
+   * @param id the identifier to look for.
+   * @return true if the identifier is in the heap, false otherwise.
+   */
+  public boolean contains(int id)
+  {
+    int i = heap_index[id];
+    return (i >= 0 && i < size && heap[i] == id);
+  }
+
+  // mutators
+
+  public void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * Add an identifier to the heap: its costs must already be set.
+   *
+   * @param id the identifier to add.
+   */
+  public void push(int id)
+  {
+    place(id, size++);
+    siftUp(size - 1);
+  }
+
+  /**
+   * Remove and return the cheapest identifier: the heap must not be empty.
+   *
+   * @return the identifier with the lowest total cost estimate.
+   */
+  public int pop()
+  {
+    int result = heap[0];
+    if(--size > 0)
+    {
+      place(heap[size], 0);
+      siftDown(0);
+    }
+    return result;
+  }
+
+  /**
+   * Remove an identifier from the heap, wherever it is.
+   *
+   * @param id an identifier currently in the heap.
+   */
+  public void remove(int id)
+  {
+    int i = heap_index[id];
+    if(--size > i)
+    {
+      place(heap[size], i);
+      siftDown(siftUp(i));
+    }
+  }
+
+  /**
+   * Restore the heap order after the costs of an identifier have changed.
+   *
+   * @param id an identifier already in the heap whose costs have changed.
+   */
+  public void update(int id)
+  {
+    siftDown(siftUp(heap_index[id]));
+  }
+
+  /* SUBROUTINES */
+
+  private boolean less(int a, int b)
+  {
+    int delta = total_cost[a] - total_cost[b];
+    return (delta != 0) ? (delta < 0) : (remaining_cost[a] < remaining_cost[b]);
+  }
+
+  private void place(int id, int i)
+  {
+    heap[i] = id;
+    heap_index[id] = i;
+  }
+
+  private int siftUp(int i)
+  {
+    int id = heap[i];
+    while(i > 0)
+    {
+      int parent = (i - 1) >> 1;
+      if(!less(id, heap[parent]))
+        break;
+      place(heap[parent], i);
+      i = parent;
+    }
+    place(id, i);
+    return i;
+  }
+
+  private int siftDown(int i)
+  {
+    int id = heap[i], half = size >> 1;
+    while(i < half)
+    {
+      // pick the cheaper of the two children
+      int child = (i << 1) + 1, right = child + 1;
+      if(right < size && less(heap[right], heap[child]))
+        child = right;
+      if(!less(heap[child], id))
+        break;
+      place(heap[child], i);
+      i = child;
+    }
+    place(id, i);
+    return i;
+  }
+}
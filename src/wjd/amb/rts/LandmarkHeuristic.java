@@ -0,0 +1,296 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The ALT heuristic (A*, Landmarks and the Triangle inequality): the exact
+ * costs between every Tile and a handful of landmark Tiles are worked out
+ * once, when the map is loaded, and give a lower bound on the cost between
+ * any two Tiles which, unlike the straight-line distance, knows about walls.
+ * On maze-like maps this can save A* the bulk of its expansions.
+ *
+ * For every landmark L the cost from a to b is at least
+ * cost(L, b) - cost(L, a) and cost(a, L) - cost(b, L). The best of these
+ * bounds, and of the MANHATTAN or OCTILE estimate, is used.
+ *
+ * The tables are only correct for the grid as it was when they were built:
+ * once a Tile has changed the estimate falls back to MANHATTAN or OCTILE
+ * until rebuild is called. The tables must be built for the same kind of
+ * moves as the search using them, or they may overestimate.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class LandmarkHeuristic extends AHeuristic
+{
+  /* CONSTANTS */
+  public static final int DEFAULT_LANDMARKS = 8;
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+  // the 4 direct neighbours come first, then the diagonals, as in PathFinder
+  private static final int[] D_COL = { 0, -1, 1, 0, -1, 1, -1, 1 };
+  private static final int[] D_ROW = { -1, 0, 0, 1, -1, -1, 1, 1 };
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  private final boolean diagonals;
+  private final AHeuristic fallback;
+  private final int n_landmarks;
+  private final int[] landmarks;
+  // cost from landmark k to Tile i at [i * n_landmarks + k], and back
+  private final int[] from_landmark;
+  private final int[] to_landmark;
+  private int built_at;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Choose the landmarks and build the tables, in parallel.
+   *
+   * @param grid the TileGrid to build the tables for.
+   * @param n_landmarks the number of landmarks: more give better estimates,
+   * but each costs two ints per Tile and makes estimates a little slower.
+   * @param diagonals true if the searches using this heuristic allow
+   * diagonal steps, false otherwise.
+   */
+  public LandmarkHeuristic(TileGrid grid, int n_landmarks, boolean diagonals)
+  {
+    this.grid = grid;
+    this.diagonals = diagonals;
+    this.n_landmarks = n_landmarks;
+    fallback = diagonals ? AHeuristic.OCTILE : AHeuristic.MANHATTAN;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+
+    landmarks = new int[n_landmarks];
+    from_landmark = new int[width * height * n_landmarks];
+    to_landmark = new int[width * height * n_landmarks];
+    rebuild();
+  }
+
+  public LandmarkHeuristic(TileGrid grid, boolean diagonals)
+  {
+    this(grid, DEFAULT_LANDMARKS, diagonals);
+  }
+
+  // accessors
+
+  /**
+   * @return true if the grid has changed since the tables were built, in
+   * which case only the fallback estimate is used.
+   */
+  public boolean isStale()
+  {
+    return (grid.getModificationCount() != built_at);
+  }
+
+  /**
+   * @param k the index of a landmark, in [0, n_landmarks).
+   * @return the landmark Tile.
+   */
+  public Tile getLandmark(int k)
+  {
+    return grid.tiles[landmarks[k] / width][landmarks[k] % width];
+  }
+
+  // mutators
+
+  /**
+   * Choose new landmarks and rebuild the tables, for instance after the map
+   * has been heavily modified: one search per table, spread over all the
+   * available processors.
+   *
+   * @return this, so that multiple operations can be queued.
+   */
+  public final LandmarkHeuristic rebuild()
+  {
+    built_at = grid.getModificationCount();
+    chooseLandmarks();
+
+    ExecutorService builders = Executors.newFixedThreadPool(
+      Math.min(2 * n_landmarks, Runtime.getRuntime().availableProcessors()),
+      new ThreadFactory()
+      {
+        private int count = 0;
+
+        @Override
+        public synchronized Thread newThread(Runnable runnable)
+        {
+          Thread thread = new Thread(runnable, "landmark-builder-" + (count++));
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    try
+    {
+      // each task writes a different column of the tables
+      List<Callable<Object>> tables = new ArrayList<Callable<Object>>();
+      for(int k = 0; k < n_landmarks; k++)
+      {
+        tables.add(Executors.callable(new TableBuilder(k, from_landmark)));
+        tables.add(Executors.callable(new TableBuilder(k, to_landmark)));
+      }
+      for(Future<Object> table : builders.invokeAll(tables))
+        table.get();
+    }
+    catch(InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      built_at = grid.getModificationCount() - 1;
+    }
+    catch(ExecutionException ex)
+    {
+      throw new RuntimeException(ex.getCause());
+    }
+    finally
+    {
+      builders.shutdown();
+    }
+    return this;
+  }
+
+  /* SUBROUTINES */
+
+  /**
+   * Spread the landmarks around the edges of the map: split it into equal
+   * angular sectors around its centre and, in each, take the pathable Tile
+   * furthest from the centre.
+   */
+  private void chooseLandmarks()
+  {
+    double centre_col = (width - 1) * 0.5, centre_row = (height - 1) * 0.5;
+    double[] best_distance = new double[n_landmarks];
+    Arrays.fill(best_distance, -1);
+    Arrays.fill(landmarks, 0);
+
+    for(int i = 0; i < width * height; i++)
+      if(grid.isPathable(i % width, i / width))
+      {
+        double dx = i % width - centre_col, dy = i / width - centre_row,
+               angle = Math.atan2(dy, dx) + Math.PI,
+               distance = dx * dx + dy * dy;
+        int k = Math.min(n_landmarks - 1,
+                         (int)(angle * n_landmarks / (2 * Math.PI)));
+        if(distance > best_distance[k])
+        {
+          best_distance[k] = distance;
+          landmarks[k] = i;
+        }
+      }
+  }
+
+  /* IMPLEMENTS -- AHEURISTIC */
+
+  @Override
+  public int estimate(int start_col, int start_row, int end_col, int end_row)
+  {
+    int best = fallback.estimate(start_col, start_row, end_col, end_row);
+    if(isStale())
+      return best;
+
+    int a = (start_row * width + start_col) * n_landmarks,
+        b = (end_row * width + end_col) * n_landmarks;
+    for(int k = 0; k < n_landmarks; k++, a++, b++)
+    {
+      // tables are useless for Tiles a landmark can't reach
+      int from_a = from_landmark[a], from_b = from_landmark[b],
+          to_a = to_landmark[a], to_b = to_landmark[b];
+      if(from_a != UNREACHABLE && from_b != UNREACHABLE)
+        best = Math.max(best, from_b - from_a);
+      if(to_a != UNREACHABLE && to_b != UNREACHABLE)
+        best = Math.max(best, to_a - to_b);
+    }
+    return best;
+  }
+
+  /* NESTING */
+
+  /**
+   * Dijkstra's algorithm from or to one landmark, writing the costs into
+   * one column of a table.
+   */
+  private class TableBuilder implements Runnable
+  {
+    private final int k;
+    private final int[] table;
+
+    public TableBuilder(int k, int[] table)
+    {
+      this.k = k;
+      this.table = table;
+    }
+
+    private boolean isPathable(int col, int row)
+    {
+      return grid.isPathable(col, row);
+    }
+
+    @Override
+    public void run()
+    {
+      // costs from the landmark pay for the Tile stepped onto, costs to the
+      // landmark for the Tile stepped from, which is closer to it
+      boolean outwards = (table == from_landmark);
+      int[] cost = new int[width * height];
+      IntHeap open = new IntHeap(cost, new int[cost.length]);
+      Arrays.fill(cost, UNREACHABLE);
+      int n_dirs = diagonals ? 8 : 4;
+      cost[landmarks[k]] = 0;
+      open.push(landmarks[k]);
+
+      while(!open.isEmpty())
+      {
+        int x = open.pop(), col = x % width, row = x / width;
+        for(int d = 0; d < n_dirs; d++)
+        {
+          int n_col = col + D_COL[d], n_row = row + D_ROW[d];
+          // moves are symmetric, and never cut corners
+          if(!isPathable(n_col, n_row)
+          || (d >= 4 && !(isPathable(n_col, row) && isPathable(col, n_row))))
+            continue;
+          int n = n_row * width + n_col,
+              step = outwards ? grid.getCost(n_col, n_row)
+                              : grid.getCost(col, row),
+              c = cost[x] + ((d < 4) ? step : PathFinder.diagonal(step));
+          if(c >= cost[n])
+            continue;
+          boolean queued = (cost[n] != UNREACHABLE);
+          cost[n] = c;
+          if(queued)
+            open.update(n);
+          else
+            open.push(n);
+        }
+      }
+
+      for(int i = 0; i < cost.length; i++)
+        table[i * n_landmarks + k] = cost[i];
+    }
+  }
+}
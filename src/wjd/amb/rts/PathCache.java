@@ -0,0 +1,258 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of paths, for the many requests that come up 
+ * again and again (rally points, patrols, trips to and from resources).
+ * 
+ * As well as exact (start, end) matches, a cached path which goes through the 
+ * requested start on its way to the requested end is reused: every part of a
+ * shortest path is itself a shortest path. The whole cache is dropped as soon
+ * as the grid's modification count changes.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class PathCache
+{
+  /* NESTING */
+  private static class Entry
+  {
+    // attributes
+    public final Long key;
+    public final Tile end;
+    public final Tile[] path;
+    public final boolean reached;
+    
+    // methods
+    public Entry(Long key, Tile end, Deque<Tile> path)
+    {
+      this.key = key;
+      this.end = end;
+      this.path = path.toArray(new Tile[path.size()]);
+      reached = (!path.isEmpty() && path.getLast() == end);
+    }
+    
+    public int indexOf(Tile tile)
+    {
+      for(int i = 0; i < path.length; i++)
+        if(path[i] == tile)
+          return i;
+      return -1;
+    }
+  }
+  
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final PathFinder finder;
+  private final int width, max_tiles;
+  // least recently used first
+  private final LinkedHashMap<Long, Entry> entries 
+    = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+  // for each end, the cached path going through each Tile
+  private final Map<Tile, Map<Tile, Entry>> through 
+    = new HashMap<Tile, Map<Tile, Entry>>();
+  private int n_tiles = 0;
+  private int version;
+  private int hits = 0, shared_hits = 0, misses = 0;
+
+  /* METHODS */
+
+  // constructors
+  
+  /**
+   * Create an empty cache.
+   * 
+   * @param grid the TileGrid to search.
+   * @param max_tiles the maximum number of Tiles, summed over all the cached
+   * paths, to keep in memory.
+   */
+  public PathCache(TileGrid grid, int max_tiles)
+  {
+    this.grid = grid;
+    this.max_tiles = max_tiles;
+    finder = new PathFinder(grid);
+    width = grid.tiles[0].length;
+    version = grid.getModificationCount();
+  }
+
+  // accessors
+  
+  /**
+   * Get a path, from the cache if possible or by searching otherwise.
+   * 
+   * @param start the Tile to start from.
+   * @param end the Tile we want to reach.
+   * @return the Tiles to walk through, as PathSearch.getPath would return 
+   * them: this is a new container which the caller is free to modify.
+   */
+  public Deque<Tile> getPath(Tile start, Tile end)
+  {
+    // any change to the grid could invalidate any path
+    if(version != grid.getModificationCount())
+    {
+      clear();
+      version = grid.getModificationCount();
+    }
+    
+    // exact match
+    Long key = key(start, end);
+    Entry entry = entries.get(key);
+    if(entry != null)
+    {
+      hits++;
+      return copy(entry, 0);
+    }
+    
+    // part of a longer path to the same end
+    Map<Tile, Entry> to_end = through.get(end);
+    if(to_end != null && (entry = to_end.get(start)) != null)
+    {
+      hits++;
+      shared_hits++;
+      entries.get(entry.key); // mark as recently used
+      return copy(entry, entry.indexOf(start) + 1);
+    }
+    
+    // search
+    misses++;
+    Deque<Tile> path = finder.getPath(start, end);
+    store(new Entry(key, end, path));
+    return path;
+  }
+  
+  public int getHits()
+  {
+    return hits;
+  }
+  
+  /**
+   * @return the number of hits which reused part of a longer path.
+   */
+  public int getSharedHits()
+  {
+    return shared_hits;
+  }
+  
+  public int getMisses()
+  {
+    return misses;
+  }
+  
+  public int getSize()
+  {
+    return entries.size();
+  }
+  
+  // mutators
+  
+  public PathCache setMode(ESearchMode mode)
+  {
+    finder.setMode(mode);
+    clear();
+    return this;
+  }
+  
+  public PathCache setDiagonals(boolean diagonals)
+  {
+    finder.setDiagonals(diagonals);
+    clear();
+    return this;
+  }
+  
+  public void clear()
+  {
+    entries.clear();
+    through.clear();
+    n_tiles = 0;
+  }
+  
+  public void resetCounters()
+  {
+    hits = shared_hits = misses = 0;
+  }
+  
+  /* SUBROUTINES */
+  
+  private long index(Tile tile)
+  {
+    return (long)tile.grid_position.y * width + (long)tile.grid_position.x;
+  }
+  
+  private Long key(Tile start, Tile end)
+  {
+    return (index(start) << 32) | index(end);
+  }
+  
+  private Deque<Tile> copy(Entry entry, int from)
+  {
+    Deque<Tile> result = new LinkedList<Tile>();
+    for(int i = from; i < entry.path.length; i++)
+      result.add(entry.path[i]);
+    return result;
+  }
+  
+  private void store(Entry entry)
+  {
+    entries.put(entry.key, entry);
+    n_tiles += entry.path.length;
+    
+    // only paths that reach the end are worth sharing
+    if(entry.reached)
+    {
+      Map<Tile, Entry> to_end = through.get(entry.end);
+      if(to_end == null)
+        through.put(entry.end, to_end = new HashMap<Tile, Entry>());
+      for(Tile tile : entry.path)
+        to_end.put(tile, entry);
+    }
+    
+    // forget the least recently used paths
+    Iterator<Map.Entry<Long, Entry>> i = entries.entrySet().iterator();
+    while(n_tiles > max_tiles && i.hasNext())
+    {
+      Map.Entry<Long, Entry> eldest = i.next();
+      if(eldest.getValue() == entry)
+        break;
+      i.remove();
+      forget(eldest.getValue());
+    }
+  }
+  
+  private void forget(Entry entry)
+  {
+    n_tiles -= entry.path.length;
+    if(!entry.reached)
+      return;
+    
+    // other paths to the same end may have taken over some of the Tiles
+    Map<Tile, Entry> to_end = through.get(entry.end);
+    for(Tile tile : entry.path)
+      if(to_end.get(tile) == entry)
+        to_end.remove(tile);
+    if(to_end.isEmpty())
+      through.remove(entry.end);
+  }
+}
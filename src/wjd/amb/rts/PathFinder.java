@@ -0,0 +1,451 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+
+/**
+ * Reusable A* search over a TileGrid: all the exploration state is kept in
+ * flat primitive arrays indexed by (row * width + col), and a generation
+ * counter marks which entries belong to the current search, so nothing needs
+ * to be allocated or cleared between searches.
+ *
+ * Costs are fixed-point, a straight step onto a normal Tile costing 
+ * STRAIGHT_COST and a diagonal step DIAGONAL_COST, so that the search needs
+ * no floating-point: see Tile.getCost for terrain that is slower to cross.
+ * The search can either be plain A* or Jump Point Search: see ESearchMode.
+ *
+ * A PathFinder is not thread-safe: use one per thread.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class PathFinder
+{
+  /* CONSTANTS */
+  public static final int STRAIGHT_COST = 100;
+  public static final int DIAGONAL_COST = 141;
+  
+  private static final byte OPEN = 1;
+  private static final byte CLOSED = 2;
+  private static final int NONE = -1;
+  // the 4 direct neighbours come first, then the diagonals
+  private static final int[] D_COL = { 0, -1, 1, 0, -1, 1, -1, 1 };
+  private static final int[] D_ROW = { -1, 0, 0, 1, -1, -1, 1, 1 };
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  private AHeuristic heuristic = null;
+  private AHeuristic active_heuristic;
+  private ESearchMode mode = ESearchMode.A_STAR;
+  private boolean diagonals = false;
+  // per-tile search state, only valid where 'visited' matches 'generation'
+  private final int[] visited;
+  private final int[] current_cost;
+  private final int[] total_cost;
+  private final int[] remaining_cost;
+  private final int[] previous;
+  private final byte[] status;
+  private final IntHeap open;
+  private int generation = 0;
+  // current query
+  private int end, end_col, end_row;
+
+  /* METHODS */
+
+  // constructors
+
+  public PathFinder(TileGrid grid)
+  {
+    this.grid = grid;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+
+    int n = width * height;
+    visited = new int[n];
+    current_cost = new int[n];
+    total_cost = new int[n];
+    remaining_cost = new int[n];
+    previous = new int[n];
+    status = new byte[n];
+    open = new IntHeap(total_cost, remaining_cost);
+  }
+
+  // accessors
+
+  public TileGrid getGrid()
+  {
+    return grid;
+  }
+
+  /**
+   * Search for a path, equivalent to new PathSearch(start, end).getPath().
+   *
+   * @param start_tile the Tile to start from.
+   * @param end_tile the Tile we want to reach.
+   * @return the Tiles to walk through, excluding the start and including the
+   * end: if the end cannot be reached the path leads to the closest reachable
+   * Tile instead.
+   */
+  public Deque<Tile> getPath(Tile start_tile, Tile end_tile)
+  {
+    return getPath(start_tile, end_tile, new LinkedList<Tile>());
+  }
+
+  /**
+   * Search for a path, writing it into a container supplied by the caller so
+   * that no allocation need take place if the container is reused.
+   *
+   * @param start_tile the Tile to start from.
+   * @param end_tile the Tile we want to reach.
+   * @param result the container to clear then fill with the path.
+   * @return the result container, so that multiple operations can be queued.
+   */
+  public Deque<Tile> getPath(Tile start_tile, Tile end_tile, Deque<Tile> result)
+  {
+    result.clear();
+    // head for the closest reachable Tile rather than exploring everything
+    int start = index(start_tile), 
+        last = search(start, index(grid.getNearestReachable(start_tile, 
+                                                            end_tile)));
+
+    // start at the end, trace backwards adding tiles
+    for(int i = last; i != start; i = previous[i])
+    {
+      // jump points may be several Tiles apart, so fill in the gaps
+      int col = i % width, row = i / width, p = previous[i],
+          d_col = Integer.signum(p % width - col), 
+          d_row = Integer.signum(p / width - row);
+      for(; row * width + col != p; col += d_col, row += d_row)
+        result.addFirst(grid.tiles[row][col]);
+    }
+    return result;
+  }
+
+  // mutators
+
+  /**
+   * @param heuristic the estimate to use, or null (the default) to use 
+   * MANHATTAN on 4-connected searches and OCTILE on 8-connected ones.
+   * @return this, so that multiple operations can be queued.
+   */
+  public PathFinder setHeuristic(AHeuristic heuristic)
+  {
+    this.heuristic = heuristic;
+    return this;
+  }
+
+  public PathFinder setMode(ESearchMode mode)
+  {
+    this.mode = mode;
+    return this;
+  }
+  
+  /**
+   * Allow or forbid diagonal steps: diagonals are never allowed to cut the
+   * corner of a Tile which is not pathable.
+   * 
+   * @param diagonals true for 8-connected searches, false for 4-connected.
+   * @return this, so that multiple operations can be queued.
+   */
+  public PathFinder setDiagonals(boolean diagonals)
+  {
+    this.diagonals = diagonals;
+    return this;
+  }
+
+  /* FUNCTIONS */
+  
+  /**
+   * @param cost the cost of a straight step onto a Tile.
+   * @return the cost of a diagonal step onto the same Tile.
+   */
+  public static int diagonal(int cost)
+  {
+    return (cost == STRAIGHT_COST) ? DIAGONAL_COST 
+                                   : cost * DIAGONAL_COST / STRAIGHT_COST;
+  }
+  
+  /* SUBROUTINES */
+
+  private int index(Tile tile)
+  {
+    return (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+  }
+
+  private boolean isPathable(int col, int row)
+  {
+    return grid.isPathable(col, row);
+  }
+
+  private int estimateCost(int i)
+  {
+    return active_heuristic.estimate(i % width, i / width, end_col, end_row);
+  }
+
+  /**
+   * Run the search.
+   *
+   * @return the index of the end tile if it was reached, or that of the closed
+   * tile closest to it otherwise.
+   */
+  private int search(int start, int end)
+  {
+    // reset: bumping the generation invalidates all the previous states
+    if(++generation == Integer.MAX_VALUE)
+    {
+      Arrays.fill(visited, 0);
+      generation = 1;
+    }
+    open.clear();
+    active_heuristic = (heuristic != null) ? heuristic
+                       : diagonals ? AHeuristic.OCTILE : AHeuristic.MANHATTAN;
+    this.end = end;
+    end_col = end % width;
+    end_row = end / width;
+
+    // add the start state to the open set
+    touch(start);
+    current_cost[start] = 0;
+    remaining_cost[start] = total_cost[start] = estimateCost(start);
+    push(start);
+    int fallback_plan = start;
+
+    while(!open.isEmpty())
+    {
+      // expand from the open state that is currently cheapest
+      int x = open.pop();
+
+      // have we reached the end?
+      if(x == end)
+        return end;
+
+      // try to expand each neighbour
+      if(mode == ESearchMode.JUMP_POINT)
+        expandJumps(x);
+      else
+        expandNeighbours(x);
+
+      // remember to close x now that all connections have been expanded
+      status[x] = CLOSED;
+
+      // keep the best closed state, just in case the target is inaccessible
+      if(remaining_cost[x] < remaining_cost[fallback_plan])
+        fallback_plan = x;
+    }
+
+    // fail!
+    return fallback_plan;
+  }
+
+  private void expandNeighbours(int x)
+  {
+    int col = x % width, row = x / width, n_dirs = diagonals ? 8 : 4;
+    for(int d = 0; d < n_dirs; d++)
+    {
+      int d_col = D_COL[d], d_row = D_ROW[d];
+      if(!isPathable(col + d_col, row + d_row))
+        continue;
+      int cost = grid.getCost(col + d_col, row + d_row);
+      if(d < 4)
+        expand(x, x + d_row * width + d_col, cost);
+      // don't cut corners
+      else if(isPathable(col + d_col, row) && isPathable(col, row + d_row))
+        expand(x, x + d_row * width + d_col, diagonal(cost));
+    }
+  }
+  
+  private void expand(int src, int dest, int step_cost)
+  {
+    int cost = current_cost[src] + step_cost;
+
+    // create states as needed
+    if(visited[dest] != generation)
+    {
+      touch(dest);
+      remaining_cost[dest] = estimateCost(dest);
+    }
+
+    // closed states are no longer under consideration
+    else if(status[dest] == CLOSED || cost >= current_cost[dest])
+      return;
+
+    // set cost before touching the heap, or order will be wrong!
+    previous[dest] = src;
+    current_cost[dest] = cost;
+    total_cost[dest] = cost + remaining_cost[dest];
+    if(status[dest] == OPEN)
+      open.update(dest);
+    else
+      push(dest);
+  }
+
+  // jump point search
+
+  /**
+   * Expand only the directions which can't be reached more cheaply without
+   * going through x, jumping along each of them to the next jump point.
+   */
+  private void expandJumps(int x)
+  {
+    int col = x % width, row = x / width, p = previous[x];
+
+    // the start has no parent, so all the directions must be explored
+    if(p == NONE)
+    {
+      for(int d = 0; d < (diagonals ? 8 : 4); d++)
+        if(d < 4 || (isPathable(col + D_COL[d], row) 
+                     && isPathable(col, row + D_ROW[d])))
+          expandJump(x, col, row, D_COL[d], D_ROW[d]);
+      return;
+    }
+
+    // otherwise prune based on the direction we came from
+    int d_col = Integer.signum(col - p % width), 
+        d_row = Integer.signum(row - p / width);
+    if(!diagonals)
+    {
+      // 4-connected: carry on straight, or turn to either side
+      expandJump(x, col, row, d_col, d_row);
+      expandJump(x, col, row, d_row, d_col);
+      expandJump(x, col, row, -d_row, -d_col);
+    }
+    else if(d_col != 0 && d_row != 0)
+    {
+      // diagonal: carry on, or follow either of its components
+      boolean horizontal = isPathable(col + d_col, row),
+              vertical = isPathable(col, row + d_row);
+      if(horizontal)
+        expandJump(x, col, row, d_col, 0);
+      if(vertical)
+        expandJump(x, col, row, 0, d_row);
+      if(horizontal && vertical)
+        expandJump(x, col, row, d_col, d_row);
+    }
+    else
+    {
+      // straight: carry on, or turn (and veer) towards open sides
+      int side_col = d_row, side_row = d_col;
+      boolean ahead = isPathable(col + d_col, row + d_row);
+      for(int side = -1; side <= 1; side += 2)
+        if(isPathable(col + side * side_col, row + side * side_row))
+        {
+          expandJump(x, col, row, side * side_col, side * side_row);
+          if(ahead)
+            expandJump(x, col, row, d_col + side * side_col, 
+                                    d_row + side * side_row);
+        }
+      if(ahead)
+        expandJump(x, col, row, d_col, d_row);
+    }
+  }
+
+  private void expandJump(int x, int col, int row, int d_col, int d_row)
+  {
+    int j = jump(col + d_col, row + d_row, d_col, d_row);
+    if(j == NONE)
+      return;
+
+    // the cost of a jump is that of a straight or a diagonal line
+    int dx = Math.abs(j % width - col), dy = Math.abs(j / width - row);
+    expand(x, j, (dx == 0 || dy == 0) 
+                  ? (dx + dy) * STRAIGHT_COST 
+                  : dx * DIAGONAL_COST);
+  }
+
+  /**
+   * Walk in a given direction until a jump point is found.
+   *
+   * @return the index of the jump point, or NONE if the way is blocked.
+   */
+  private int jump(int col, int row, int d_col, int d_row)
+  {
+    while(isPathable(col, row))
+    {
+      int i = row * width + col;
+      if(i == end)
+        return i;
+
+      if(d_col != 0 && d_row != 0)
+      {
+        // moving diagonally: stop if either component leads somewhere
+        if(jumpStraight(col + d_col, row, d_col, 0) != NONE
+        || jumpStraight(col, row + d_row, 0, d_row) != NONE)
+          return i;
+        // don't cut corners
+        if(!isPathable(col + d_col, row) || !isPathable(col, row + d_row))
+          return NONE;
+      }
+      else
+      {
+        if(isForced(col, row, d_col, d_row))
+          return i;
+        // 4-connected vertical moves stop where a horizontal move leads on
+        if(!diagonals && d_row != 0
+        && (jumpStraight(col + 1, row, 1, 0) != NONE
+            || jumpStraight(col - 1, row, -1, 0) != NONE))
+          return i;
+      }
+      col += d_col;
+      row += d_row;
+    }
+    return NONE;
+  }
+
+  private int jumpStraight(int col, int row, int d_col, int d_row)
+  {
+    while(isPathable(col, row))
+    {
+      int i = row * width + col;
+      if(i == end || isForced(col, row, d_col, d_row))
+        return i;
+      col += d_col;
+      row += d_row;
+    }
+    return NONE;
+  }
+
+  /**
+   * Moving straight, check for a side opening up which was blocked on the
+   * previous Tile: such "forced neighbours" can't be reached without going 
+   * through this Tile.
+   */
+  private boolean isForced(int col, int row, int d_col, int d_row)
+  {
+    int side_col = d_row, side_row = d_col;
+    return (isPathable(col + side_col, row + side_row)
+            && !isPathable(col + side_col - d_col, row + side_row - d_row))
+        || (isPathable(col - side_col, row - side_row)
+            && !isPathable(col - side_col - d_col, row - side_row - d_row));
+  }
+
+  private void touch(int i)
+  {
+    visited[i] = generation;
+    status[i] = 0;
+    previous[i] = NONE;
+  }
+
+  private void push(int tile)
+  {
+    status[tile] = OPEN;
+    open.push(tile);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Deque;
+
+/**
+ * A path query submitted to a PathService, which doubles as a handle on its 
+ * future result.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class PathRequest
+{
+  /* ATTRIBUTES */
+  public final Tile start, end;
+  private final IPathListener listener;
+  private volatile boolean cancelled = false;
+  // written by a worker, read by the game thread once it is delivered
+  private volatile Deque<Tile> result = null;
+  private boolean done = false;
+
+  /* METHODS */
+
+  // constructors
+  PathRequest(Tile start, Tile end, IPathListener listener)
+  {
+    this.start = start;
+    this.end = end;
+    this.listener = listener;
+  }
+
+  // accessors
+
+  /**
+   * @return true once the path has been delivered by PathService.update.
+   */
+  public boolean isDone()
+  {
+    return done;
+  }
+
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
+  /**
+   * @return the path, or null if it hasn't been delivered yet or the search
+   * failed.
+   */
+  public Deque<Tile> getPath()
+  {
+    return done ? result : null;
+  }
+
+  // mutators
+
+  /**
+   * Drop the request: it will not be searched if it hasn't been already, and
+   * its result will never be delivered.
+   */
+  public void cancel()
+  {
+    cancelled = true;
+  }
+
+  // package
+
+  void setResult(Deque<Tile> result)
+  {
+    this.result = result;
+  }
+
+  void deliver()
+  {
+    done = true;
+    if(listener != null)
+      listener.pathFound(this, result);
+  }
+}
@@ -20,8 +20,6 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 
 /**
  *
@@ -30,17 +28,30 @@ import java.util.Queue;
  */
 public class PathSearch
 {
-  /* NESTING */
-  
   /* ATTRIBUTES */
+  // told about every search once it's over, if anything is
+  private static volatile ISearchListener statistics_listener = null;
+  
   private final TileGrid grid;
   private final SearchState start;
   private final SearchState end;
-  private final AHeuristic heuristic = AHeuristic.EUCLIEAN;
+  private final AHeuristic heuristic;
+  private final boolean diagonals;
+  // the width and height, in Tiles, of the unit looking for a path
+  private final int size;
+  // true if the end is a stand-in for a goal that can't be reached
+  private final boolean detour;
   private Map<Tile, SearchState> states;
-  private Queue<SearchState> open;
-  private boolean hasResult = false;
+  private SearchHeap open;
+  private final Tile[] neighbours = new Tile[8];
+  private ESearchStatus status = ESearchStatus.IN_PROGRESS;
   private SearchState fallback_plan;
+  private SearchState last_expanded = null;
+  // statistics
+  private final ISearchListener listener;
+  private int expansions = 0;
+  private int peak_open = 1;
+  private long elapsed = 0;
   
 
   /* METHODS */
@@ -49,41 +60,194 @@ public class PathSearch
   
   public PathSearch(Tile start_tile, Tile end_tile)
   {
+    this(start_tile, end_tile, false);
+  }
+  
+  /**
+   * Prepare a search, and perform it straight away unless it is to be run
+   * a little at a time.
+   * 
+   * @param start_tile the Tile to start from.
+   * @param end_tile the Tile we want to reach.
+   * @param incremental true to leave the search to be advanced with step, 
+   * false to run it to completion immediately.
+   */
+  public PathSearch(Tile start_tile, Tile end_tile, boolean incremental)
+  {
+    this(start_tile, end_tile, incremental, false);
+  }
+  
+  /**
+   * Prepare a search which may allow diagonal steps.
+   * 
+   * @param start_tile the Tile to start from.
+   * @param end_tile the Tile we want to reach.
+   * @param incremental true to leave the search to be advanced with step, 
+   * false to run it to completion immediately.
+   * @param diagonals true to allow diagonal steps, which never cut the corner
+   * of a Tile that isn't pathable.
+   */
+  public PathSearch(Tile start_tile, Tile end_tile, boolean incremental,
+                    boolean diagonals)
+  {
+    this(start_tile, end_tile, incremental, diagonals, 1);
+  }
+  
+  /**
+   * Prepare a search for a unit covering several Tiles, which is placed by
+   * its top-left Tile: only Tiles with enough clearance for it are entered,
+   * see TileGrid.getClearance.
+   * 
+   * @param start_tile the Tile to start from.
+   * @param end_tile the Tile we want to reach.
+   * @param incremental true to leave the search to be advanced with step, 
+   * false to run it to completion immediately.
+   * @param diagonals true to allow diagonal steps, which never cut the corner
+   * of a Tile that isn't pathable.
+   * @param size the width and height of the unit, in Tiles.
+   */
+  public PathSearch(Tile start_tile, Tile end_tile, boolean incremental,
+                    boolean diagonals, int size)
+  {
+    // only look at the clock if someone is interested
+    this.listener = statistics_listener;
+    long begin = (listener == null) ? 0 : System.nanoTime();
+    
     // initialise final attributes
     this.grid = start_tile.grid;
+    this.diagonals = diagonals;
+    this.size = size;
+    this.heuristic = diagonals ? AHeuristic.OCTILE : AHeuristic.MANHATTAN;
     
-    this.start = new SearchState(start_tile, this);
-    this.end = new SearchState(end_tile, this);
+    // rather than exploring everything reachable before giving up on a goal
+    // that can't be reached, head straight for the closest Tile that can
+    Tile goal = grid.getNearestReachable(start_tile, end_tile);
+    this.detour = (goal != end_tile);
+    
+    this.start = new SearchState(start_tile, estimateCost(start_tile, goal));
+    this.end = new SearchState(goal, 0);
 
     fallback_plan = start;
-    start.totalCostEstimate = estimateCost(start_tile);
     
     // wrap graph vertices in exploration state objects
     states = new HashMap<Tile, SearchState>();
     states.put(start_tile, start);
-    states.put(end_tile, end);
+    states.put(goal, end);
 
     // add the start state to the open set
-    open = new PriorityQueue<SearchState>();
+    open = new SearchHeap();
     open.add(start);
+    if(listener != null)
+      elapsed = System.nanoTime() - begin;
     
-    // perform the search
-    hasResult = search();
+    // perform the search, unless it is to be time-sliced
+    if(!incremental)
+      step(Integer.MAX_VALUE);
   }
   
   // accessors
   
-  final int estimateCost(Tile tile)
+  public ESearchStatus getStatus()
+  {
+    return status;
+  }
+  
+  /**
+   * @return the state of a Tile the search has reached, or null if it hasn't
+   * reached it (yet).
+   */
+  SearchState getState(Tile tile)
   {
-    return heuristic.estimate(tile.grid_position, end.tile.grid_position);
+    SearchState state = states.get(tile);
+    return (state == start || (state != null && state.previous != null))
+           ? state
+           : null;
   }
   
+  SearchState getLastExpanded()
+  {
+    return last_expanded;
+  }
+  
+  /**
+   * @return the lowest total cost estimate of the open states, a lower bound
+   * on the cost of any path still to be found.
+   */
+  int getOpenMinimum()
+  {
+    return open.isEmpty() ? Integer.MAX_VALUE : open.peek().totalCostEstimate;
+  }
+  
+  /**
+   * @return the number of states expanded so far.
+   */
+  public int getExpansions()
+  {
+    return expansions;
+  }
+  
+  /**
+   * @return the largest number of states that were open at once.
+   */
+  public int getPeakOpenSize()
+  {
+    return peak_open;
+  }
+  
+  /**
+   * @return the number of states created so far, one per Tile reached.
+   */
+  public int getStateCount()
+  {
+    return states.size();
+  }
+  
+  /**
+   * @return the nanoseconds spent searching so far, over all the calls to
+   * step, or 0 if there was no listener when the search was created: the
+   * clock isn't read otherwise.
+   */
+  public long getElapsedTime()
+  {
+    return elapsed;
+  }
+  
+  /**
+   * @return true if the search is over and getPath returns the way to the
+   * closest Tile it could reach rather than to the goal.
+   */
+  public boolean usedFallback()
+  {
+    return (status == ESearchStatus.FAILED);
+  }
+  
+  public Tile getStartTile()
+  {
+    return start.tile;
+  }
+  
+  /**
+   * @return the Tile the search is heading for, which is the reachable Tile
+   * closest to the goal if the goal itself can't be reached.
+   */
+  public Tile getEndTile()
+  {
+    return end.tile;
+  }
+  
+  /**
+   * The path to the end, or to the Tile closest to the end that has been 
+   * explored so far: this can be called before the search is over, so that
+   * units can start moving in the right direction.
+   * 
+   * @return the Tiles to walk through, excluding the start.
+   */
   public Deque<Tile> getPath()
   {
     Deque<Tile> result = new LinkedList<Tile>();
 
     // start at the end, trace backwards adding vertices
-    SearchState current = hasResult ? end : fallback_plan;
+    SearchState current = (status == ESearchStatus.FOUND) ? end : fallback_plan;
     while (current != start)
     {
       // add element to front, in order for list to be in the right order
@@ -93,44 +257,120 @@ public class PathSearch
     return result;
   }
   
+  // mutators
+  
+  /**
+   * Advance the search, expanding no more than a certain number of states.
+   * 
+   * @param max_expansions the most states to expand before returning.
+   * @return FOUND or FAILED if the search is over, IN_PROGRESS otherwise.
+   */
+  public ESearchStatus step(int max_expansions)
+  {
+    if(listener == null || status != ESearchStatus.IN_PROGRESS)
+      return advance(max_expansions);
+    
+    long begin = System.nanoTime();
+    advance(max_expansions);
+    elapsed += System.nanoTime() - begin;
+    if(status != ESearchStatus.IN_PROGRESS)
+      listener.searchFinished(this);
+    return status;
+  }
+  
+  /* FUNCTIONS */
+  
+  /**
+   * Collect statistics about every search from now on, or stop doing so:
+   * searches already under way keep the listener they started with. Without
+   * a listener the only cost is a handful of counters per search.
+   * 
+   * @param listener told when each search is over, or null.
+   */
+  public static void setListener(ISearchListener listener)
+  {
+    statistics_listener = listener;
+  }
+  
   /* SUBROUTINES */
-
-  private boolean search()
+  
+  private ESearchStatus advance(int max_expansions)
   {
-    while (!open.isEmpty())
+    if(status != ESearchStatus.IN_PROGRESS)
+      return status;
+    
+    for(int i = 0; i < max_expansions; i++)
     {
+      // fail!
+      if(open.isEmpty())
+        return (status = ESearchStatus.FAILED);
       // expand from the open state that is currently cheapest
       SearchState x = open.poll();
 
       // have we reached the end?
       if (x.equals(end))
-        return true;
+      {
+        if(!detour)
+          return (status = ESearchStatus.FOUND);
+        // ... or as close to it as we'll ever get?
+        fallback_plan = x;
+        return (status = ESearchStatus.FAILED);
+      }
 
       // try to expand each neighbour
-      for (Tile t : (Iterable<Tile>)grid.getNeighbours(x.tile, false))
-        if(t.isPathable())
-          expand(x, t);
+      int col = (int)x.tile.grid_position.x, row = (int)x.tile.grid_position.y,
+          n_neighbours = grid.getNeighbours(x.tile, diagonals, neighbours);
+      for (int n = 0; n < n_neighbours; n++)
+      {
+        Tile t = neighbours[n];
+        int d_col = (int)t.grid_position.x - col, 
+            d_row = (int)t.grid_position.y - row;
+        if(!fits(col + d_col, row + d_row))
+          continue;
+        int cost = grid.getCost(col + d_col, row + d_row);
+        if(d_col == 0 || d_row == 0)
+          expand(x, t, cost);
+        // don't cut corners
+        else if(fits(col + d_col, row) && fits(col, row + d_row))
+          expand(x, t, PathFinder.diagonal(cost));
+      }
 
       // remember to close x now that all connections have been expanded
       x.closed = true;
+      last_expanded = x;
+      expansions++;
+      if(open.size() > peak_open)
+        peak_open = open.size();
       
       // keep the best closed state, just in case the target is inaccessible
-      if(estimateCost(x.tile) < estimateCost(fallback_plan.tile))
+      if(x.remainingCostEstimate < fallback_plan.remainingCostEstimate)
         fallback_plan = x;
     }
     
-    // fail!
-    return false;
+    // out of time for now
+    return (open.isEmpty() ? (status = ESearchStatus.FAILED) : status);
   }
 
-  private void expand(SearchState src_state, Tile t)
+  private boolean fits(int col, int row)
+  {
+    return (size == 1) 
+           ? grid.isPathable(col, row)
+           : grid.getClearance(grid.tiles[row][col]) >= size;
+  }
+
+  private int estimateCost(Tile tile, Tile goal)
+  {
+    return heuristic.estimate(tile.grid_position, goal.grid_position);
+  }
+
+  private void expand(SearchState src_state, Tile t, int step_cost)
   {
     SearchState dest_state = states.get(t);
     
     // create states as needed
     if(dest_state == null)
     {
-      dest_state = new SearchState(t, this);
+      dest_state = new SearchState(t, estimateCost(t, end.tile));
       states.put(t, dest_state);
     }
 
@@ -142,16 +382,15 @@ public class PathSearch
     if (!open.contains(dest_state))
     {
       // set cost before adding to heap, or order will be wrong!
-      dest_state.setParent(src_state);
+      dest_state.setParent(src_state, step_cost);
       open.add(dest_state);
     }
     // states already open link back to x only if it's better
-    else if (src_state.currentCost < dest_state.currentCost)
+    else if (src_state.currentCost + step_cost < dest_state.currentCost)
     {
-      // remove, reset cost and replace, or order will be wrong!
-      open.remove(dest_state);
-      dest_state.setParent(src_state);
-      open.add(dest_state);
+      // reset cost then restore the heap order, or order will be wrong!
+      dest_state.setParent(src_state, step_cost);
+      open.update(dest_state);
     }
   }
 }
@@ -0,0 +1,226 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import wjd.amb.control.EUpdateResult;
+import wjd.amb.control.IDynamic;
+
+/**
+ * Asynchronous path-finding: requests are submitted from the game thread,
+ * searched on a pool of worker threads each with its own PathFinder, and the
+ * results are delivered back on the game thread by update, a limited number
+ * per tick so that a large group order is spread over several frames.
+ *
+ * The workers read the Tiles while the game runs, so a Tile changing while a
+ * request is in flight may give a path which is already out of date: the
+ * request can simply be cancelled and submitted again.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class PathService implements IDynamic
+{
+  /* CONSTANTS */
+  public static final int DEFAULT_BUDGET = 32;
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final ExecutorService workers;
+  private final ThreadLocal<PathFinder> finders;
+  // game thread only
+  private final Queue<PathRequest> pending = new LinkedList<PathRequest>();
+  // filled by the workers, emptied by the game thread
+  private final Queue<PathRequest> completed
+    = new ConcurrentLinkedQueue<PathRequest>();
+  private int budget = DEFAULT_BUDGET;
+  private volatile ESearchMode mode = ESearchMode.A_STAR;
+  private volatile boolean diagonals = false;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Start the worker threads.
+   *
+   * @param grid the TileGrid to search.
+   * @param n_threads the number of worker threads to use.
+   */
+  public PathService(TileGrid grid, int n_threads)
+  {
+    this.grid = grid;
+    workers = Executors.newFixedThreadPool(n_threads, new ThreadFactory()
+    {
+      private int count = 0;
+
+      @Override
+      public synchronized Thread newThread(Runnable runnable)
+      {
+        // don't keep the application alive just for path-finding
+        Thread thread = new Thread(runnable, "path-worker-" + (count++));
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    // each worker gets its own search scratch-space
+    finders = new ThreadLocal<PathFinder>()
+    {
+      @Override
+      protected PathFinder initialValue()
+      {
+        return new PathFinder(PathService.this.grid);
+      }
+    };
+  }
+
+  public PathService(TileGrid grid)
+  {
+    this(grid, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+  }
+
+  // accessors
+
+  /**
+   * @return the number of requests waiting to be handed to the workers.
+   */
+  public int getPendingCount()
+  {
+    return pending.size();
+  }
+
+  // mutators
+
+  /**
+   * Queue a path search.
+   *
+   * @param start the Tile to start from.
+   * @param end the Tile we want to reach.
+   * @param listener told when the path is ready, or null to poll the request.
+   * @return the request, which can be polled or cancelled.
+   */
+  public PathRequest submit(Tile start, Tile end, IPathListener listener)
+  {
+    PathRequest request = new PathRequest(start, end, listener);
+    pending.add(request);
+    return request;
+  }
+
+  public PathRequest submit(Tile start, Tile end)
+  {
+    return submit(start, end, null);
+  }
+
+  /**
+   * Set how many requests are handed to the workers, and how many results
+   * are delivered, each time update is called.
+   *
+   * @param budget the maximum number of requests per tick.
+   * @return this, so that multiple operations can be queued.
+   */
+  public PathService setBudget(int budget)
+  {
+    this.budget = budget;
+    return this;
+  }
+
+  public PathService setMode(ESearchMode mode)
+  {
+    this.mode = mode;
+    return this;
+  }
+
+  public PathService setDiagonals(boolean diagonals)
+  {
+    this.diagonals = diagonals;
+    return this;
+  }
+
+  /**
+   * Stop the worker threads: requests still in flight are dropped.
+   */
+  public void shutdown()
+  {
+    workers.shutdownNow();
+  }
+
+  /* IMPLEMENTS -- IDYNAMIC */
+
+  @Override
+  public EUpdateResult update(int t_delta)
+  {
+    // hand new requests to the workers, skipping those no longer wanted
+    for(int i = 0; i < budget && !pending.isEmpty(); )
+    {
+      PathRequest request = pending.poll();
+      if(!request.isCancelled())
+      {
+        dispatch(request);
+        i++;
+      }
+    }
+
+    // deliver the finished results
+    for(int i = 0; i < budget && !completed.isEmpty(); )
+    {
+      PathRequest request = completed.poll();
+      if(!request.isCancelled())
+      {
+        request.deliver();
+        i++;
+      }
+    }
+
+    return EUpdateResult.CONTINUE;
+  }
+
+  /* SUBROUTINES */
+
+  private void dispatch(final PathRequest request)
+  {
+    workers.execute(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        // the request may have gone stale while it was queued
+        if(request.isCancelled())
+          return;
+        // the Tiles may change under the search, and the request must be
+        // delivered even if it fails, with a null path, or the unit would
+        // wait for ever; the exception still reaches the thread, which is
+        // replaced along with its PathFinder
+        try
+        {
+          PathFinder finder = finders.get();
+          finder.setMode(mode).setDiagonals(diagonals);
+          request.setResult(finder.getPath(request.start, request.end));
+        }
+        finally
+        {
+          completed.add(request);
+        }
+      }
+    });
+  }
+}
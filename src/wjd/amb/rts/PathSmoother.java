@@ -0,0 +1,86 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Deque;
+import java.util.LinkedList;
+
+/**
+ * Any-angle post-processing of grid paths ("string pulling"): the staircase
+ * of single steps a search returns is collapsed into the few waypoints where
+ * a unit really needs to turn, each in straight line of sight of the last.
+ *
+ * A shortcut is only taken if it crosses no Tile dearer than the dearest of
+ * those it replaces, so smoothing doesn't send units through terrain the
+ * search went out of its way to avoid.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class PathSmoother
+{
+  /* FUNCTIONS */
+
+  public static Deque<Tile> smooth(Tile start, Deque<Tile> path)
+  {
+    return smooth(start, path, new LinkedList<Tile>());
+  }
+
+  /**
+   * Reduce a path to the waypoints where it turns.
+   *
+   * @param start the Tile the path starts from, which it doesn't include.
+   * @param path a path as returned by the searches, every Tile of which is a
+   * neighbour of the previous one.
+   * @param result the container to clear then fill with the waypoints, which
+   * can't be the path itself.
+   * @return the result container, holding the waypoints to go through in a
+   * straight line one after the other, excluding the start and including the
+   * last Tile of the path.
+   */
+  public static Deque<Tile> smooth(Tile start, Deque<Tile> path,
+                                   Deque<Tile> result)
+  {
+    result.clear();
+    TileGrid grid = start.grid;
+    Tile anchor = start, previous = null;
+    int max_cost = 0;
+
+    for(Tile tile : path)
+    {
+      // go straight from the last waypoint for as long as possible...
+      int cost = Math.max(max_cost, grid.getCost(tile));
+      if(previous != null
+      && !grid.isClearLine((int)anchor.grid_position.x,
+                           (int)anchor.grid_position.y,
+                           (int)tile.grid_position.x,
+                           (int)tile.grid_position.y, cost))
+      {
+        // ... then turn where the line was last clear
+        result.addLast(previous);
+        anchor = previous;
+        cost = grid.getCost(tile);
+      }
+      max_cost = cost;
+      previous = tile;
+    }
+
+    if(previous != null)
+      result.addLast(previous);
+    return result;
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A path which repairs itself when the grid changes, for a unit to keep for
+ * as long as it travels (D* Lite). The search runs backwards from the goal,
+ * so the costs it has worked out stay valid as the unit moves along, and
+ * when Tiles change only the states whose cost-to-goal actually depends on
+ * them are reconsidered: replanning costs depend on the size of the change,
+ * not the size of the map. Changes close to the unit, which are the usual 
+ * case, are the cheapest to repair, while blocking the way close to the goal
+ * can cost as much as searching again.
+ *
+ * Like PathFinder, the state is kept in flat arrays the size of the grid,
+ * which are allocated once and reused for as long as the unit keeps its
+ * goal. Changes are listened for, but only applied the next time the path
+ * is asked for: call dispose when the path is no longer needed.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class ReplanningPathSearch implements ITileListener
+{
+  /* CONSTANTS */
+  private static final int INFINITY = Integer.MAX_VALUE / 4;
+  // the 4 direct neighbours come first, then the diagonals
+  private static final int[] D_COL = { 0, -1, 1, 0, -1, 1, -1, 1 };
+  private static final int[] D_ROW = { -1, 0, 0, 1, -1, -1, 1, 1 };
+  // the direction leading back to where each direction came from
+  private static final int[] OPPOSITE = { 3, 2, 1, 0, 7, 6, 5, 4 };
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  private final boolean diagonals;
+  private final AHeuristic heuristic;
+  // per-tile search state, only valid where 'visited' matches 'generation'
+  private final int[] visited;
+  private final int[] cost;         // g: best known cost to the goal
+  private final int[] lookahead;    // rhs: cost via the best neighbour
+  private final int[] key;          // primary key in the open set
+  private final int[] tie_break;    // secondary key in the open set
+  private final IntHeap open;
+  private int generation = 0;
+  // the goal asked for, and the one actually searched for if that can't be
+  private final Tile target;
+  private int goal = -1;
+  private int start, last_start;
+  // accumulated heuristic drift since the start last moved
+  private int key_offset = 0;
+  private final List<Tile> changes = new LinkedList<Tile>();
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Plan a path, and keep track of the changes to the grid which might make
+   * it need repairing.
+   *
+   * @param start_tile the Tile the unit is on.
+   * @param end_tile the Tile the unit wants to reach.
+   * @param diagonals true to allow diagonal steps, which never cut the corner
+   * of a Tile that isn't pathable.
+   */
+  public ReplanningPathSearch(Tile start_tile, Tile end_tile, boolean diagonals)
+  {
+    this.grid = start_tile.grid;
+    this.diagonals = diagonals;
+    this.heuristic = diagonals ? AHeuristic.OCTILE : AHeuristic.MANHATTAN;
+    this.target = end_tile;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+
+    int n = width * height;
+    visited = new int[n];
+    cost = new int[n];
+    lookahead = new int[n];
+    key = new int[n];
+    tie_break = new int[n];
+    open = new IntHeap(key, tie_break);
+
+    start = last_start = index(start_tile);
+    grid.addListener(this);
+  }
+
+  // accessors
+
+  /**
+   * @return the Tiles to walk through from the current start, excluding it
+   * and including the end: if the end can't be reached the path leads to the
+   * closest Tile that can be.
+   */
+  public Deque<Tile> getPath()
+  {
+    return getPath(new LinkedList<Tile>());
+  }
+
+  /**
+   * Repair the plan as needed, then write the path into a container supplied
+   * by the caller.
+   *
+   * @param result the container to clear then fill with the path.
+   * @return the result container, so that multiple operations can be queued.
+   */
+  public Deque<Tile> getPath(Deque<Tile> result)
+  {
+    replan();
+    result.clear();
+    if(costOf(start) >= INFINITY)
+      return result;
+
+    // walk downhill towards the goal
+    for(int x = start, steps = 0; x != goal && steps < cost.length; steps++)
+    {
+      int best = -1, best_cost = INFINITY;
+      for(int d = 0; d < (diagonals ? 8 : 4); d++)
+      {
+        int c = viaNeighbour(x, d);
+        if(c < best_cost)
+        {
+          best_cost = c;
+          best = x + D_ROW[d] * width + D_COL[d];
+        }
+      }
+      if(best < 0)
+        break;
+      result.addLast(grid.tiles[best / width][best % width]);
+      x = best;
+    }
+    return result;
+  }
+
+  // mutators
+
+  /**
+   * Tell the search that the unit has moved: the next path will start from
+   * here, and what was learnt so far is kept.
+   *
+   * @param start_tile the Tile the unit is now on.
+   * @return this, so that multiple operations can be queued.
+   */
+  public ReplanningPathSearch setStart(Tile start_tile)
+  {
+    start = index(start_tile);
+    return this;
+  }
+
+  /**
+   * Stop listening to the grid: the path can no longer be repaired.
+   */
+  public void dispose()
+  {
+    grid.removeListener(this);
+    changes.clear();
+  }
+
+  /* SUBROUTINES */
+
+  private int index(Tile tile)
+  {
+    return (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+  }
+
+  private boolean isPathable(int col, int row)
+  {
+    return grid.isPathable(col, row);
+  }
+
+  private int costOf(int i)
+  {
+    return (visited[i] == generation) ? cost[i] : INFINITY;
+  }
+
+  private void touch(int i)
+  {
+    if(visited[i] != generation)
+    {
+      visited[i] = generation;
+      cost[i] = lookahead[i] = INFINITY;
+    }
+  }
+
+  /**
+   * @return the cost of stepping from a Tile to one of its neighbours, or 
+   * INFINITY if the step isn't allowed.
+   */
+  private int stepCost(int x, int d)
+  {
+    int col = x % width + D_COL[d], row = x / width + D_ROW[d];
+    if(!isPathable(col, row))
+      return INFINITY;
+    if(d < 4)
+      return grid.getCost(col, row);
+    // don't cut corners
+    return (isPathable(col, x / width) && isPathable(x % width, row))
+           ? PathFinder.diagonal(grid.getCost(col, row))
+           : INFINITY;
+  }
+
+  /**
+   * @return the cost of stepping from a Tile to one of its neighbours then
+   * on to the goal, or INFINITY if there's no such way.
+   */
+  private int viaNeighbour(int x, int d)
+  {
+    int step = stepCost(x, d);
+    if(step >= INFINITY)
+      return INFINITY;
+    int to_goal = costOf(x + D_ROW[d] * width + D_COL[d]);
+    return (to_goal >= INFINITY) ? INFINITY : to_goal + step;
+  }
+
+  private void calculateKey(int i)
+  {
+    int best = Math.min(cost[i], lookahead[i]);
+    key[i] = (best >= INFINITY)
+            ? INFINITY
+            : best + key_offset + heuristic.estimate(start % width,
+                start / width, i % width, i / width);
+    tie_break[i] = best;
+  }
+
+  private boolean keyLess(int key_a, int tie_a, int key_b, int tie_b)
+  {
+    return (key_a != key_b) ? (key_a < key_b) : (tie_a < tie_b);
+  }
+
+  /**
+   * Start over, because the goal itself has changed.
+   */
+  private void reset(int new_goal)
+  {
+    if(++generation == Integer.MAX_VALUE)
+    {
+      Arrays.fill(visited, 0);
+      generation = 1;
+    }
+    open.clear();
+    changes.clear();
+    goal = new_goal;
+    last_start = start;
+    key_offset = 0;
+
+    touch(goal);
+    lookahead[goal] = 0;
+    calculateKey(goal);
+    open.push(goal);
+  }
+
+  private void replan()
+  {
+    // a goal that can't be reached is replaced by the closest one that can,
+    // which may change as the grid does
+    int new_goal = index(grid.getNearestReachable(
+                           grid.tiles[start / width][start % width], target));
+    if(new_goal != goal)
+      reset(new_goal);
+
+    // keys of the open states assumed the old start: rather than recomputing
+    // them all, raise every new key by the most the heuristic could drop by
+    if(start != last_start)
+    {
+      key_offset += heuristic.estimate(last_start % width, last_start / width,
+                                       start % width, start / width);
+      last_start = start;
+    }
+
+    // each change affects the Tile itself and the ways into and around it
+    for(Tile tile : changes)
+    {
+      int i = index(tile), col = i % width, row = i / width;
+      updateState(i);
+      for(int d = 0; d < 8; d++)
+      {
+        int c = col + D_COL[d], r = row + D_ROW[d];
+        if(c >= 0 && r >= 0 && c < width && r < height)
+          updateState(r * width + c);
+      }
+    }
+    changes.clear();
+
+    computeShortestPath();
+  }
+
+  private void updateState(int i)
+  {
+    // unexplored states have nothing to update
+    if(visited[i] != generation && i != start)
+    {
+      boolean explored_neighbour = false;
+      for(int d = 0; d < 8 && !explored_neighbour; d++)
+      {
+        int c = i % width + D_COL[d], r = i / width + D_ROW[d];
+        explored_neighbour = (c >= 0 && r >= 0 && c < width && r < height
+                              && visited[r * width + c] == generation);
+      }
+      if(!explored_neighbour)
+        return;
+    }
+
+    touch(i);
+    if(i != goal)
+    {
+      lookahead[i] = INFINITY;
+      for(int d = 0; d < (diagonals ? 8 : 4); d++)
+        lookahead[i] = Math.min(lookahead[i], viaNeighbour(i, d));
+    }
+    reopen(i);
+  }
+
+  private void reopen(int i)
+  {
+    // only inconsistent states need to be open
+    if(cost[i] != lookahead[i])
+    {
+      calculateKey(i);
+      if(open.contains(i))
+        open.update(i);
+      else
+        open.push(i);
+    }
+    else if(open.contains(i))
+      open.remove(i);
+  }
+
+  private void computeShortestPath()
+  {
+    touch(start);
+    int n_dirs = diagonals ? 8 : 4;
+    while(!open.isEmpty())
+    {
+      // stop once the start is consistent and nothing open could improve it
+      int u = open.peek(),
+          start_best = Math.min(cost[start], lookahead[start]),
+          start_key = (start_best >= INFINITY) ? INFINITY
+                                               : start_best + key_offset;
+      if(!keyLess(key[u], tie_break[u], start_key, start_best)
+      && cost[start] == lookahead[start])
+        break;
+
+      int old_key = key[u], old_tie_break = tie_break[u], 
+          col = u % width, row = u / width;
+      calculateKey(u);
+      if(keyLess(old_key, old_tie_break, key[u], tie_break[u]))
+        // the key was out of date: put it back where it belongs
+        open.update(u);
+      
+      else if(cost[u] > lookahead[u])
+      {
+        // cheaper than we thought: settle it, then the neighbours can only 
+        // get cheaper by going through it
+        cost[u] = lookahead[u];
+        open.remove(u);
+        for(int d = 0; d < n_dirs; d++)
+        {
+          int c = col + D_COL[d], r = row + D_ROW[d], p = r * width + c;
+          if(c < 0 || r < 0 || c >= width || r >= height || p == goal)
+            continue;
+          touch(p);
+          int via_u = viaNeighbour(p, OPPOSITE[d]);
+          if(via_u < lookahead[p])
+          {
+            lookahead[p] = via_u;
+            reopen(p);
+          }
+        }
+      }
+      
+      else
+      {
+        // dearer than we thought: reconsider it, and whichever neighbours
+        // were relying on it
+        int old_cost = cost[u];
+        cost[u] = INFINITY;
+        updateState(u);
+        for(int d = 0; d < n_dirs; d++)
+        {
+          int c = col + D_COL[d], r = row + D_ROW[d], p = r * width + c;
+          if(c < 0 || r < 0 || c >= width || r >= height
+          || visited[p] != generation)
+            continue;
+          int step = stepCost(p, OPPOSITE[d]);
+          if(step < INFINITY && lookahead[p] == step + old_cost)
+            updateState(p);
+        }
+      }
+    }
+  }
+
+  /* IMPLEMENTS -- ITILELISTENER */
+
+  @Override
+  public void tileChanged(Tile tile)
+  {
+    changes.add(tile);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+
+/**
+ * Which agent has claimed which Tile at which time step: an open-addressing
+ * hash table from (Tile index, time) packed into a long to the agent's
+ * number, so that reserving and checking slots allocates nothing and only
+ * the slots actually claimed take up any space.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+class ReservationTable
+{
+  /* CONSTANTS */
+  public static final int NONE = -1;
+  private static final long EMPTY = -1L;
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  /* ATTRIBUTES */
+  private long[] keys;
+  private int[] owners;
+  private int mask;
+  private int size = 0;
+
+  /* METHODS */
+
+  // constructors
+
+  public ReservationTable()
+  {
+    allocate(DEFAULT_CAPACITY);
+  }
+
+  // accessors
+
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * @param tile the index of a Tile, row * width + col.
+   * @param time the time step.
+   * @return the agent which has reserved the Tile at that time, or NONE.
+   */
+  public int getOwner(int tile, int time)
+  {
+    long key = key(tile, time);
+    for(int i = slot(key); keys[i] != EMPTY; i = (i + 1) & mask)
+      if(keys[i] == key)
+        return owners[i];
+    return NONE;
+  }
+
+  // mutators
+
+  /**
+   * Claim a Tile at a time step, replacing any previous claim.
+   *
+   * @param tile the index of a Tile, row * width + col.
+   * @param time the time step.
+   * @param agent the agent claiming it.
+   */
+  public void reserve(int tile, int time, int agent)
+  {
+    // keep the table at most half full, so that probes stay short
+    if(2 * (size + 1) > keys.length)
+      rehash(keys.length * 2);
+
+    long key = key(tile, time);
+    int i = slot(key);
+    for(; keys[i] != EMPTY; i = (i + 1) & mask)
+      if(keys[i] == key)
+      {
+        owners[i] = agent;
+        return;
+      }
+    keys[i] = key;
+    owners[i] = agent;
+    size++;
+  }
+
+  public void clear()
+  {
+    Arrays.fill(keys, EMPTY);
+    size = 0;
+  }
+
+  /* SUBROUTINES */
+
+  private static long key(int tile, int time)
+  {
+    return ((long)time << 32) | (tile & 0xFFFFFFFFL);
+  }
+
+  private int slot(long key)
+  {
+    // mix the bits so that neighbouring Tiles and times spread out
+    key *= 0x9E3779B97F4A7C15L;
+    return (int)(key >>> 32) & mask;
+  }
+
+  private void allocate(int capacity)
+  {
+    keys = new long[capacity];
+    owners = new int[capacity];
+    mask = capacity - 1;
+    Arrays.fill(keys, EMPTY);
+  }
+
+  private void rehash(int capacity)
+  {
+    long[] old_keys = keys;
+    int[] old_owners = owners;
+    allocate(capacity);
+    size = 0;
+    for(int i = 0; i < old_keys.length; i++)
+      if(old_keys[i] != EMPTY)
+        reserve((int)old_keys[i], (int)(old_keys[i] >>> 32), old_owners[i]);
+  }
+}
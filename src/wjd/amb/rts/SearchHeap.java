@@ -0,0 +1,165 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of SearchStates in which each state remembers its own
+ * position in the heap: this means membership can be checked in constant time
+ * and a state whose cost has dropped can be moved up in logarithmic time,
+ * instead of the linear scans java.util.PriorityQueue would need.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+class SearchHeap
+{
+  /* CONSTANTS */
+  private static final int DEFAULT_CAPACITY = 64;
+
+  /* ATTRIBUTES */
+  private SearchState[] heap = new SearchState[DEFAULT_CAPACITY];
+  private int size = 0;
+
+  /* METHODS */
+
+  // accessors
+
+  public boolean isEmpty()
+  {
+    return (size == 0);
+  }
+
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the cheapest state, without removing it, or null if the heap is
+   * empty.
+   */
+  public SearchState peek()
+  {
+    return (size == 0) ? null : heap[0];
+  }
+
+  /**
+   * Check if a state is currently in the heap.
+   *
+   * @param state the state to look for.
+   * @return true if the state is in this heap, false otherwise.
+   */
+  public boolean contains(SearchState state)
+  {
+    int i = state.heap_index;
+    return (i >= 0 && i < size && heap[i] == state);
+  }
+
+  // mutators
+
+  /**
+   * Add a state to the heap: its costs must already be set.
+   *
+   * @param state the state to add.
+   */
+  public void add(SearchState state)
+  {
+    if(size == heap.length)
+      heap = Arrays.copyOf(heap, size * 2);
+    place(state, size++);
+    siftUp(state.heap_index);
+  }
+
+  /**
+   * Remove and return the cheapest state.
+   *
+   * @return the state with the lowest total cost estimate, or null if the heap
+   * is empty.
+   */
+  public SearchState poll()
+  {
+    if(size == 0)
+      return null;
+
+    SearchState result = heap[0];
+    result.heap_index = -1;
+
+    // move the last leaf to the root and let it sink back down
+    SearchState last = heap[--size];
+    heap[size] = null;
+    if(size > 0)
+    {
+      place(last, 0);
+      siftDown(0);
+    }
+    return result;
+  }
+
+  /**
+   * Restore the heap order after the costs of a state have changed.
+   *
+   * @param state a state already in the heap whose costs have been modified.
+   */
+  public void update(SearchState state)
+  {
+    siftDown(siftUp(state.heap_index));
+  }
+
+  /* SUBROUTINES */
+
+  private void place(SearchState state, int i)
+  {
+    heap[i] = state;
+    state.heap_index = i;
+  }
+
+  private int siftUp(int i)
+  {
+    SearchState state = heap[i];
+    while(i > 0)
+    {
+      int parent = (i - 1) >> 1;
+      if(state.compareTo(heap[parent]) >= 0)
+        break;
+      place(heap[parent], i);
+      i = parent;
+    }
+    place(state, i);
+    return i;
+  }
+
+  private int siftDown(int i)
+  {
+    SearchState state = heap[i];
+    int half = size >> 1;
+    while(i < half)
+    {
+      // pick the cheaper of the two children
+      int child = (i << 1) + 1, right = child + 1;
+      if(right < size && heap[right].compareTo(heap[child]) < 0)
+        child = right;
+      if(state.compareTo(heap[child]) <= 0)
+        break;
+      place(heap[child], i);
+      i = child;
+    }
+    place(state, i);
+    return i;
+  }
+}
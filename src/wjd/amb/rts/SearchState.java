@@ -25,28 +25,33 @@ class SearchState implements Comparable<SearchState>
 {
   /* ATTRIBUTES */
   
-  public final PathSearch search;
   public final Tile tile;
+  public final int remainingCostEstimate;
   public SearchState previous = null;
   public int currentCost = 0;
   public int totalCostEstimate = 0;
+  // steps taken since the start, for searches through space and time
+  public int time = 0;
   public boolean closed = false;
+  public int heap_index = -1;
   
 
   /* METHODS */
   
   // constructors
-  public SearchState(Tile current, PathSearch search)
+  public SearchState(Tile current, int remaining_cost_estimate)
   {
     this.tile = current;
-    this.search = search;
+    this.remainingCostEstimate = remaining_cost_estimate;
+    totalCostEstimate = remaining_cost_estimate;
   }
 
-  public void setParent(SearchState previous)
+  public void setParent(SearchState previous, int step_cost)
   {
     this.previous = previous;
-    currentCost = previous.currentCost + 1;
-    totalCostEstimate = currentCost + search.estimateCost(tile);
+    currentCost = previous.currentCost + step_cost;
+    totalCostEstimate = currentCost + remainingCostEstimate;
+    time = previous.time + 1;
   }
 
   @Override
@@ -56,6 +61,6 @@ class SearchState implements Comparable<SearchState>
     // return different in heuristics if ever total cost are the same
     return (delta != 0)
            ? delta
-           : search.estimateCost(tile) - search.estimateCost(other.tile);
+           : remainingCostEstimate - other.remainingCostEstimate;
   }
 }
@@ -0,0 +1,196 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import wjd.util.LimitedQueue;
+
+/**
+ * Aggregates the statistics of path searches second by second, so that a
+ * spike in frame time can be traced back to the searches which caused it:
+ * each Second counts the searches that finished during it, with histograms
+ * of how long they took and how many states they expanded, and remembers
+ * the slowest of them.
+ *
+ *   PathSearch.setListener(new SearchStatistics(60, System.out));
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class SearchStatistics implements ISearchListener
+{
+  /* CONSTANTS */
+  public static final int DEFAULT_HISTORY = 60;
+  // histogram bucket b counts values below 2^b and no lower than 2^(b-1)
+  public static final int BUCKETS = 32;
+  private static final long NANOSECONDS = 1000000000L;
+
+  /* NESTING */
+
+  /**
+   * The searches which finished during one second.
+   */
+  public static class Second
+  {
+    /* ATTRIBUTES */
+    // seconds since the SearchStatistics was created
+    public final long time;
+    public int searches = 0;
+    public int fallbacks = 0;
+    public long expansions = 0;
+    public long states = 0;
+    public int peak_open = 0;
+    // nanoseconds
+    public long elapsed = 0;
+    public long slowest = 0;
+    public Tile slowest_start = null, slowest_end = null;
+    // in microseconds and in states expanded
+    public final int[] time_histogram = new int[BUCKETS];
+    public final int[] expansion_histogram = new int[BUCKETS];
+
+    /* METHODS */
+
+    // constructors
+    Second(long time)
+    {
+      this.time = time;
+    }
+
+    // mutators
+    void add(PathSearch search)
+    {
+      long search_time = search.getElapsedTime();
+      searches++;
+      if(search.usedFallback())
+        fallbacks++;
+      expansions += search.getExpansions();
+      states += search.getStateCount();
+      peak_open = Math.max(peak_open, search.getPeakOpenSize());
+      elapsed += search_time;
+      if(search_time >= slowest)
+      {
+        slowest = search_time;
+        slowest_start = search.getStartTile();
+        slowest_end = search.getEndTile();
+      }
+      time_histogram[bucket(search_time / 1000)]++;
+      expansion_histogram[bucket(search.getExpansions())]++;
+    }
+
+    /* OVERRIDES -- OBJECT */
+    @Override
+    public String toString()
+    {
+      StringBuilder result = new StringBuilder();
+      result.append(time).append("s: ").append(searches).append(" searches, ")
+        .append(fallbacks).append(" fallbacks, ")
+        .append(expansions).append(" expanded, ")
+        .append(states).append(" states, peak open ").append(peak_open)
+        .append(", ").append(elapsed / 1000).append("us, slowest ")
+        .append(slowest / 1000).append("us");
+      if(slowest_start != null)
+        result.append(" from ").append(slowest_start.grid_position)
+          .append(" to ").append(slowest_end.grid_position);
+      appendHistogram(result.append("\n  us:"), time_histogram);
+      appendHistogram(result.append("\n  expanded:"), expansion_histogram);
+      return result.toString();
+    }
+  }
+
+  /* ATTRIBUTES */
+  private final LimitedQueue<Second> history;
+  private final PrintStream out;
+  private final long origin = System.nanoTime();
+  private Second current = null;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Prepare to collect statistics.
+   *
+   * @param history the number of Seconds to remember.
+   * @param out where to print each Second once it's over, or null.
+   */
+  public SearchStatistics(int history, PrintStream out)
+  {
+    this.history = new LimitedQueue<Second>(history);
+    this.out = out;
+  }
+
+  public SearchStatistics()
+  {
+    this(DEFAULT_HISTORY, null);
+  }
+
+  // accessors
+
+  /**
+   * @return a copy of the Seconds which are over, oldest first, skipping
+   * those during which no search finished.
+   */
+  public synchronized List<Second> getHistory()
+  {
+    return new ArrayList<Second>(history);
+  }
+
+  // mutators
+
+  /**
+   * Close the current Second, rather than waiting for a search to finish
+   * during the next one, for instance before reading the history.
+   */
+  public synchronized void flush()
+  {
+    if(current == null)
+      return;
+    history.add(current);
+    if(out != null)
+      out.println(current);
+    current = null;
+  }
+
+  /* IMPLEMENTS -- ISEARCHLISTENER */
+
+  @Override
+  public synchronized void searchFinished(PathSearch search)
+  {
+    long time = (System.nanoTime() - origin) / NANOSECONDS;
+    if(current != null && current.time != time)
+      flush();
+    if(current == null)
+      current = new Second(time);
+    current.add(search);
+  }
+
+  /* FUNCTIONS */
+
+  private static int bucket(long value)
+  {
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+  }
+
+  private static void appendHistogram(StringBuilder result, int[] histogram)
+  {
+    for(int b = 0; b < BUCKETS; b++)
+      if(histogram[b] > 0)
+        result.append(" <").append(1L << b).append(':').append(histogram[b]);
+  }
+}
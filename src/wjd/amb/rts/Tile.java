@@ -49,7 +49,47 @@ public abstract class Tile implements IVisible, IDynamic
     this.grid = grid;
   } 
   
+  // accessors
+  
+  /**
+   * The cost of stepping onto this Tile, in the fixed-point units of
+   * PathFinder.STRAIGHT_COST, which is the default: diagonal steps cost
+   * DIAGONAL_COST / STRAIGHT_COST times more. Override to slow units down on
+   * rough terrain: costs below the default would make the path-finding
+   * heuristics overestimate, so to make roads fast make the rest slow.
+   * 
+   * The searches don't call this: they read a copy kept by the TileGrid,
+   * so whenever the cost changes changed() must be called.
+   * 
+   * @return the cost of a straight step onto this Tile.
+   */
+  public int getCost()
+  {
+    return PathFinder.STRAIGHT_COST;
+  }
+  
+  // mutators
+  
+  /**
+   * Tell the grid that this Tile's pathability or cost has changed, so that
+   * the copies it keeps for the searches, and its listeners, are brought up
+   * to date. Until this is called the searches go on seeing the Tile as it
+   * was.
+   */
+  public void changed()
+  {
+    if(grid != null)
+      grid.tileChanged(this);
+  }
+  
   /* INTERFACE */
   
+  /**
+   * Can units walk on this Tile? As with getCost, the searches read a copy
+   * kept by the TileGrid rather than calling this, so whenever the answer
+   * changes changed() must be called.
+   * 
+   * @return true if units can walk on this Tile.
+   */
   public abstract boolean isPathable();
 }
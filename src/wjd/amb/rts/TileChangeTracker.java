@@ -0,0 +1,220 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers which Tiles of a TileGrid have changed since it was last
+ * drained, so that something derived from the grid, such as a renderer's
+ * cached images or an AI's map of the terrain, can update only what changed
+ * once per tick rather than rescanning every Tile every frame.
+ *
+ * Changes are kept two ways: a log of the Tiles changed, each once however
+ * many times it changed, in the order they first changed, and a bitmap of
+ * the square chunks of the grid containing at least one of them, which is
+ * quicker to check for a whole area such as the view. Each consumer should
+ * have a tracker of its own, and call dispose once it no longer needs it.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class TileChangeTracker implements ITileListener
+{
+  /* CONSTANTS */
+  public static final int DEFAULT_CHUNK_SIZE = 16;
+  private static final int DEFAULT_CAPACITY = 64;
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  private final int chunk_size, chunks_x, chunks_y;
+  // one bit per chunk, and one per Tile to avoid logging Tiles twice
+  private final long[] dirty_chunks;
+  private final long[] logged;
+  // the indices of the changed Tiles, row * width + col
+  private int[] log = new int[DEFAULT_CAPACITY];
+  private int n_logged = 0;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Start tracking the changes to a grid.
+   *
+   * @param grid the TileGrid to watch.
+   * @param chunk_size the width and height, in Tiles, of the chunks whose
+   * dirtiness is tracked.
+   */
+  public TileChangeTracker(TileGrid grid, int chunk_size)
+  {
+    this.grid = grid;
+    this.chunk_size = chunk_size;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+    chunks_x = (width + chunk_size - 1) / chunk_size;
+    chunks_y = (height + chunk_size - 1) / chunk_size;
+    dirty_chunks = new long[(chunks_x * chunks_y + 63) / 64];
+    logged = new long[(width * height + 63) / 64];
+    grid.addListener(this);
+  }
+
+  public TileChangeTracker(TileGrid grid)
+  {
+    this(grid, DEFAULT_CHUNK_SIZE);
+  }
+
+  // accessors
+
+  public int getChunkSize()
+  {
+    return chunk_size;
+  }
+
+  /**
+   * @return the number of columns of chunks.
+   */
+  public int getChunksX()
+  {
+    return chunks_x;
+  }
+
+  /**
+   * @return the number of rows of chunks.
+   */
+  public int getChunksY()
+  {
+    return chunks_y;
+  }
+
+  /**
+   * @return the number of different Tiles changed since the last drain.
+   */
+  public int getChangeCount()
+  {
+    return n_logged;
+  }
+
+  public boolean hasChanges()
+  {
+    return (n_logged > 0);
+  }
+
+  /**
+   * @param chunk_col the column of a chunk, from 0 to getChunksX() - 1.
+   * @param chunk_row the row of a chunk, from 0 to getChunksY() - 1.
+   * @return true if a Tile of the chunk has changed since the last drain.
+   */
+  public boolean isChunkDirty(int chunk_col, int chunk_row)
+  {
+    int i = chunk_row * chunks_x + chunk_col;
+    return ((dirty_chunks[i >>> 6] & (1L << i)) != 0);
+  }
+
+  /**
+   * Check whether anything has changed in a rectangle of Tiles, a chunk at
+   * a time rather than a Tile at a time, so it may say yes for a change just
+   * outside the rectangle.
+   *
+   * @param min_col the leftmost column of the rectangle.
+   * @param min_row the top row.
+   * @param max_col the rightmost column, included.
+   * @param max_row the bottom row, included.
+   * @return true if a chunk overlapping the rectangle is dirty.
+   */
+  public boolean isAreaDirty(int min_col, int min_row, int max_col,
+                             int max_row)
+  {
+    // division rounds towards 0, which would put an area off the top or the
+    // left of the grid in the first chunk
+    if(n_logged == 0 || max_col < 0 || max_row < 0)
+      return false;
+    int first_x = Math.max(0, min_col / chunk_size),
+        first_y = Math.max(0, min_row / chunk_size),
+        last_x = Math.min(chunks_x - 1, max_col / chunk_size),
+        last_y = Math.min(chunks_y - 1, max_row / chunk_size);
+    for(int chunk_row = first_y; chunk_row <= last_y; chunk_row++)
+      for(int chunk_col = first_x; chunk_col <= last_x; chunk_col++)
+        if(isChunkDirty(chunk_col, chunk_row))
+          return true;
+    return false;
+  }
+
+  // mutators
+
+  /**
+   * Hand over the Tiles changed since the last drain, and start afresh.
+   *
+   * @param result the list to add the changed Tiles to, in the order they
+   * first changed.
+   * @return result, so that multiple operations can be queued.
+   */
+  public List<Tile> drain(List<Tile> result)
+  {
+    for(int i = 0; i < n_logged; i++)
+      result.add(grid.tiles[log[i] / width][log[i] % width]);
+    clear();
+    return result;
+  }
+
+  /**
+   * Forget the changes without looking at them, for instance after
+   * rebuilding everything anyway.
+   */
+  public void clear()
+  {
+    // few Tiles change in a tick, so unmark them rather than every word
+    for(int i = 0; i < n_logged; i++)
+    {
+      int col = log[i] % width, row = log[i] / width,
+          chunk = (row / chunk_size) * chunks_x + col / chunk_size;
+      logged[log[i] >>> 6] = 0;
+      dirty_chunks[chunk >>> 6] = 0;
+    }
+    n_logged = 0;
+  }
+
+  /**
+   * Stop tracking changes.
+   */
+  public void dispose()
+  {
+    grid.removeListener(this);
+    clear();
+  }
+
+  /* IMPLEMENTS -- ITILELISTENER */
+
+  @Override
+  public void tileChanged(Tile tile)
+  {
+    int col = (int)tile.grid_position.x, row = (int)tile.grid_position.y,
+        i = row * width + col;
+    if((logged[i >>> 6] & (1L << i)) != 0)
+      return;
+    logged[i >>> 6] |= (1L << i);
+
+    if(n_logged == log.length)
+      log = Arrays.copyOf(log, log.length * 2);
+    log[n_logged++] = i;
+
+    int chunk = (row / chunk_size) * chunks_x + col / chunk_size;
+    dirty_chunks[chunk >>> 6] |= (1L << chunk);
+  }
+}
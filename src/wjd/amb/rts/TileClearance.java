@@ -0,0 +1,109 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * The clearance of each Tile of a TileGrid: the size of the largest square
+ * of pathable Tiles which has the Tile as its top-left corner, so that a unit
+ * covering size x size Tiles can stand wherever the clearance is at least
+ * its size.
+ *
+ * Clearances are capped at MAX_CLEARANCE, so a change to a Tile can only
+ * affect the Tiles in the MAX_CLEARANCE x MAX_CLEARANCE square above and to
+ * its left, which are all that is recomputed.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+class TileClearance
+{
+  /* CONSTANTS */
+  public static final int MAX_CLEARANCE = 16;
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  private byte[] clearance = null;
+
+  /* METHODS */
+
+  // constructors
+
+  public TileClearance(TileGrid grid)
+  {
+    this.grid = grid;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+  }
+
+  // accessors
+
+  /**
+   * @param col the column of a Tile on the grid.
+   * @param row the row of a Tile on the grid.
+   * @return the clearance of the Tile, 0 if it isn't pathable.
+   */
+  public synchronized int getClearance(int col, int row)
+  {
+    if(clearance == null)
+    {
+      clearance = new byte[width * height];
+      update(width - 1, height - 1, width, height);
+    }
+    return clearance[row * width + col];
+  }
+
+  // mutators
+
+  /**
+   * Forget all clearances, for instance because the Tiles have all been
+   * replaced: they will be recomputed the next time they are needed.
+   */
+  public synchronized void reset()
+  {
+    clearance = null;
+  }
+
+  public synchronized void tileChanged(Tile tile)
+  {
+    if(clearance != null)
+      update((int)tile.grid_position.x, (int)tile.grid_position.y,
+             MAX_CLEARANCE, MAX_CLEARANCE);
+  }
+
+  /* SUBROUTINES */
+
+  private int get(int col, int row)
+  {
+    return (col < width && row < height) ? clearance[row * width + col] : 0;
+  }
+
+  /**
+   * Recompute a block of Tiles, from its bottom-right corner up: each Tile
+   * depends only on those to its right and below it.
+   */
+  private void update(int last_col, int last_row, int cols, int rows)
+  {
+    for(int row = last_row; row >= 0 && row > last_row - rows; row--)
+      for(int col = last_col; col >= 0 && col > last_col - cols; col--)
+        clearance[row * width + col] = (byte)
+          (grid.isPathable(col, row)
+           ? Math.min(MAX_CLEARANCE, 1 + Math.min(get(col + 1, row + 1),
+                        Math.min(get(col + 1, row), get(col, row + 1))))
+           : 0);
+  }
+}
@@ -16,6 +16,7 @@
  */
 package wjd.amb.rts;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,29 +30,70 @@ import wjd.math.V2;
  */
 public class TileGrid<T extends Tile> implements Iterable<T>
 {
+  /* CONSTANTS */
+  // the 4 direct neighbours come first, then the diagonals, as in PathFinder
+  private static final int[] D_COL = { 0, -1, 1, 0, -1, 1, -1, 1 };
+  private static final int[] D_ROW = { -1, 0, 0, 1, -1, -1, 1, 1 };
+  
   /* ATTRIBUTES */
 
   public final T[][] tiles;
   private final ITileType factory;
   private final Rect grid_area;
   private final Rect pixel_area;
+  private final int width, height;
+  // the part of the Tiles this grid covers, which is all of them unless it
+  // is a sub-grid
+  private final int min_col, min_row, max_col, max_row;
+  private final TileMask mask;
+  private final TileRegions regions;
+  private final TileClearance clearance;
+  // shared by a grid and all its sub-grids, since they share the same Tiles
+  private final List<ITileListener> listeners;
+  private final TileGrid root;
+  private int modifications = 0;
 
   /* METHODS */
   
   // constructors
-  private TileGrid(T[][] tiles, Rect grid_area, ITileType factory)
+  private TileGrid(T[][] tiles, Rect grid_area, ITileType factory,
+                   TileGrid parent)
   {
     this.tiles = tiles;
     this.grid_area = grid_area;
     this.factory = factory;
+    this.height = tiles.length;
+    this.width = tiles[0].length;
+    this.min_col = (int)grid_area.x;
+    this.min_row = (int)grid_area.y;
+    this.max_col = (int)grid_area.endx();
+    this.max_row = (int)grid_area.endy();
+    if(parent == null)
+    {
+      this.mask = new TileMask(this);
+      this.regions = new TileRegions(this);
+      this.clearance = new TileClearance(this);
+      this.listeners = new ArrayList<ITileListener>();
+      this.root = this;
+    }
+    else
+    {
+      // Tiles only tell the grid they were created by when they change, so a
+      // sub-grid must see what its parent sees
+      this.mask = parent.mask;
+      this.regions = parent.regions;
+      this.clearance = parent.clearance;
+      this.listeners = parent.listeners;
+      this.root = parent.root;
+    }
     this.pixel_area 
       = new Rect(grid_area.pos(), grid_area.size().add(1,1)).mult(factory.getSize());
   }
   
   public TileGrid(V2 size, ITileType factory)
   {
-    this((T[][])new Object[(int)size.y][(int)size.x], 
-         new Rect(V2.ORIGIN, size.clone().dinc()).floor(), factory);
+    this((T[][])new Tile[(int)size.y][(int)size.x], 
+         new Rect(V2.ORIGIN, size.clone().dinc()).floor(), factory, null);
   }
 
   // mutators
@@ -64,11 +106,155 @@ public class TileGrid<T extends Tile> implements Iterable<T>
     for (int row = (int) grid_area.y; row <= (int)(grid_area.endy()); row++)
       for (int col = (int) grid_area.x; col <= (int) (grid_area.endx()); col++)
         tiles[row][col] = (T)factory.create(row, col, this);
+    mask.reset();
+    regions.reset();
+    clearance.reset();
+    return this;
+  }
+  
+  /**
+   * Register an object to be told when Tiles change.
+   * 
+   * @param listener the object to notify.
+   * @return this, so that multiple operations can be queued.
+   */
+  public TileGrid addListener(ITileListener listener)
+  {
+    listeners.add(listener);
+    return this;
+  }
+  
+  public TileGrid removeListener(ITileListener listener)
+  {
+    listeners.remove(listener);
     return this;
   }
+  
+  /**
+   * Tiles can't tell the grid when they change, so this, or Tile.changed,
+   * must be called whenever the state of a Tile, such as its pathability, is
+   * modified: the searches read the grid's copy of the Tiles, not the Tiles
+   * themselves, and go on seeing the old state until then.
+   * 
+   * @param tile the Tile which has changed.
+   */
+  public void tileChanged(T tile)
+  {
+    root.modifications++;
+    mask.tileChanged(tile);
+    regions.tileChanged(tile);
+    clearance.tileChanged(tile);
+    for(int i = 0; i < listeners.size(); i++)
+      listeners.get(i).tileChanged(tile);
+  }
 
   // accessors
   
+  /**
+   * @return the number of times tileChanged has been called, so that derived
+   * structures can check whether they are out of date.
+   */
+  public int getModificationCount()
+  {
+    return root.modifications;
+  }
+  
+  /**
+   * Check whether a Tile is pathable without touching the Tile itself: the
+   * searches call this in their inner loops, so it reads a packed copy of
+   * the grid's pathability, kept up to date by tileChanged.
+   * 
+   * @param col the column of the Tile.
+   * @param row the row of the Tile.
+   * @return true if the position is on the grid and the Tile there is
+   * pathable, false otherwise.
+   */
+  public boolean isPathable(int col, int row)
+  {
+    return (col >= 0 && row >= 0 && col < width && row < height
+            && mask.isPathable(row * width + col));
+  }
+  
+  /**
+   * The cost of stepping onto a Tile, from the same packed copy of the grid
+   * as isPathable.
+   * 
+   * @param col the column of the Tile, which must be on the grid.
+   * @param row the row of the Tile.
+   * @return what Tile.getCost returned when the Tile was last changed.
+   */
+  public int getCost(int col, int row)
+  {
+    return mask.getCost(row * width + col);
+  }
+  
+  /**
+   * @param tile a Tile of the grid.
+   * @return the cost of stepping onto the Tile, as getCost(col, row), so as
+   * to agree with the searches rather than calling Tile.getCost.
+   */
+  public int getCost(T tile)
+  {
+    return getCost((int)tile.grid_position.x, (int)tile.grid_position.y);
+  }
+  
+  /**
+   * Which connected region of the grid is a Tile in? Tiles can reach each
+   * other if and only if they are in the same region, so this is far cheaper
+   * than searching for a path that doesn't exist.
+   * 
+   * @param tile the Tile to check.
+   * @return an identifier shared by all the Tiles reachable from this one, 
+   * which may change whenever tileChanged is called, or -1 if the Tile isn't
+   * pathable.
+   */
+  public int getRegion(T tile)
+  {
+    return regions.getRegion(tile);
+  }
+  
+  /**
+   * Check, in constant time, whether a path exists between two Tiles.
+   * 
+   * @param from the Tile to start from.
+   * @param to the Tile to reach.
+   * @return true if both Tiles are pathable and connected, false otherwise.
+   */
+  public boolean isReachable(T from, T to)
+  {
+    int region = regions.getRegion(from);
+    return (region != TileRegions.NONE && region == regions.getRegion(to));
+  }
+  
+  /**
+   * Replace an unreachable goal by the reachable Tile closest to it, as the
+   * crow flies, without having to flood the area around the start.
+   * 
+   * @param from the Tile to start from.
+   * @param to the Tile we would like to reach.
+   * @return the goal itself if it can be reached (or if the start isn't 
+   * pathable), otherwise the Tile closest to it which can be.
+   */
+  public T getNearestReachable(T from, T to)
+  {
+    return (T)regions.getNearestReachable(from, to);
+  }
+  
+  /**
+   * How big a unit can stand on a Tile? Units covering several Tiles are
+   * placed by their top-left Tile, so this is the size of the largest square
+   * of pathable Tiles with this one as its top-left corner.
+   * 
+   * @param tile the Tile to check.
+   * @return the clearance of the Tile, 0 if it isn't pathable, and no more
+   * than TileClearance.MAX_CLEARANCE (16) however open the ground is.
+   */
+  public int getClearance(T tile)
+  {
+    return clearance.getClearance((int)tile.grid_position.x, 
+                                  (int)tile.grid_position.y);
+  }
+  
   public Rect getPixelArea()
   {
     return pixel_area;
@@ -126,7 +312,7 @@ public class TileGrid<T extends Tile> implements Iterable<T>
     sub_grid_area = sub_grid_area.getIntersection(grid_area);
     return (sub_grid_area == null) 
            ? null 
-           : new TileGrid(tiles, sub_grid_area, factory);
+           : new TileGrid(tiles, sub_grid_area, factory, this);
   }
 
   public List<T> getNeighbours(T tile, boolean diagonals)
@@ -139,7 +325,8 @@ public class TileGrid<T extends Tile> implements Iterable<T>
     // add applicable neighbours
     for(int row = -1; row < 2; row++)
     for(int col = -1; col < 2; col++)
-    if(diagonals || Math.abs(row + col) == 1) // only the 4 direct neighbours
+    if((row != 0 || col != 0) // never the tile itself
+    && (diagonals || Math.abs(row + col) == 1)) // only the 4 direct neighbours
     {
       neighbour = gridToTile(pos.reset(tile.grid_position).add(col, row));
       if(neighbour != null)
@@ -149,6 +336,31 @@ public class TileGrid<T extends Tile> implements Iterable<T>
     // return the result
     return neighbour_list;
   }
+  
+  /**
+   * Collect the neighbours of a Tile without allocating anything, for the
+   * inner loops of searches. Only neighbours inside this grid are returned,
+   * so those of a sub-grid stop at its edges.
+   * 
+   * @param tile the Tile whose neighbours we want.
+   * @param diagonals true to include the 4 diagonal neighbours.
+   * @param result the array to fill, with room for 8 Tiles (4 without the
+   * diagonals): the 4 direct neighbours come first, then the diagonals.
+   * @return the number of neighbours written at the start of result.
+   */
+  public int getNeighbours(T tile, boolean diagonals, T[] result)
+  {
+    int col = (int)tile.grid_position.x, row = (int)tile.grid_position.y,
+        n_neighbours = 0;
+    for(int d = 0; d < (diagonals ? 8 : 4); d++)
+    {
+      int n_col = col + D_COL[d], n_row = row + D_ROW[d];
+      if(n_col >= min_col && n_row >= min_row 
+      && n_col <= max_col && n_row <= max_row)
+        result[n_neighbours++] = tiles[n_row][n_col];
+    }
+    return n_neighbours;
+  }
 
   /**
    * Check if a position is on the grid.
@@ -160,9 +372,88 @@ public class TileGrid<T extends Tile> implements Iterable<T>
   public boolean validGridPos(V2 grid_pos)
   {
     return (grid_pos.x >= 0 && grid_pos.y >= 0
-            && grid_pos.y < tiles.length && grid_pos.x < tiles[0].length);
+            && grid_pos.y < height && grid_pos.x < width);
   }
-  
+
+  /**
+   * Check whether a unit could walk in a straight line between the centres of
+   * two Tiles: every Tile the line crosses must be pathable, and where it
+   * passes exactly through a corner both Tiles touching it must be, just as
+   * diagonal steps may not cut corners.
+   *
+   * @param from the Tile to start from.
+   * @param to the Tile to reach.
+   * @return true if the line is clear, false otherwise.
+   */
+  public boolean hasLineOfSight(T from, T to)
+  {
+    return isClearLine((int)from.grid_position.x, (int)from.grid_position.y,
+                       (int)to.grid_position.x, (int)to.grid_position.y,
+                       Integer.MAX_VALUE);
+  }
+
+  /**
+   * Walk the Tiles crossed by a straight line between the centres of two
+   * Tiles, in integer arithmetic and without allocating anything.
+   *
+   * @param from_col the column of the starting Tile, which isn't checked.
+   * @param from_row the row of the starting Tile.
+   * @param to_col the column of the Tile to reach, which must be on the grid.
+   * @param to_row the row of the Tile to reach.
+   * @param max_cost the highest Tile cost to accept along the line, so that
+   * a line across open ground doesn't cut through a swamp.
+   * @return true if every Tile crossed is pathable and no dearer than
+   * max_cost, false otherwise.
+   */
+  public boolean isClearLine(int from_col, int from_row, int to_col,
+                             int to_row, int max_cost)
+  {
+    int dx = Math.abs(to_col - from_col), dy = Math.abs(to_row - from_row),
+        step_col = (to_col > from_col) ? 1 : -1,
+        step_row = (to_row > from_row) ? 1 : -1,
+        col = from_col, row = from_row,
+        // > 0 if the line leaves the current Tile sideways, < 0 vertically
+        error = dx - dy;
+    dx *= 2;
+    dy *= 2;
+
+    for(int n = (dx + dy) / 2; n > 0; n--)
+    {
+      if(error > 0)
+      {
+        col += step_col;
+        error -= dy;
+      }
+      else if(error < 0)
+      {
+        row += step_row;
+        error += dx;
+      }
+      else
+      {
+        // exactly through a corner: both Tiles touching it must be clear
+        if(!isClear(col + step_col, row, max_cost)
+        || !isClear(col, row + step_row, max_cost))
+          return false;
+        col += step_col;
+        row += step_row;
+        error += dx - dy;
+        n--;
+      }
+      if(!isClear(col, row, max_cost))
+        return false;
+    }
+    return true;
+  }
+
+  /* SUBROUTINES */
+
+  private boolean isClear(int col, int row, int max_cost)
+  {
+    int i = row * width + col;
+    return (mask.isPathable(i) && mask.getCost(i) <= max_cost);
+  }
+
   /* OVERRIDES -- OBJECT */
   @Override
   public String toString()
@@ -0,0 +1,182 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+/**
+ * A dense copy of what the searches need to know about the Tiles of a
+ * TileGrid: one bit per Tile for whether it's pathable, packed into longs,
+ * and one byte per Tile for its cost. Reading these arrays in the inner loops
+ * of the searches, rather than calling methods on Tile objects scattered
+ * about the heap, keeps the data they touch in a few cache lines.
+ *
+ * Costs are stored as indices into a palette of the distinct costs seen, and
+ * not at all while every Tile has the default cost. If more than 256
+ * different costs turn up, they are stored in full, an int per Tile: they
+ * are never read from the Tiles, which may have changed since tileChanged
+ * was last called.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+class TileMask
+{
+  /* CONSTANTS */
+  private static final int MAX_COSTS = 256;
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  // written last when building, so that readers which see it see the rest
+  private volatile long[] pathable = null;
+  // palette index of each Tile, null while all the Tiles cost the default
+  private byte[] costs = null;
+  private final int[] palette = new int[MAX_COSTS];
+  private int n_costs = 0;
+  // the cost of each Tile, if there are too many to fit in the palette
+  private int[] wide_costs = null;
+
+  /* METHODS */
+
+  // constructors
+
+  public TileMask(TileGrid grid)
+  {
+    this.grid = grid;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+  }
+
+  // accessors
+
+  /**
+   * @param i the index of a Tile on the grid, row * width + col.
+   * @return true if the Tile is pathable.
+   */
+  public boolean isPathable(int i)
+  {
+    long[] bits = pathable;
+    if(bits == null)
+      bits = build();
+    return ((bits[i >>> 6] & (1L << i)) != 0);
+  }
+
+  /**
+   * @param i the index of a Tile on the grid, row * width + col.
+   * @return the cost of stepping onto the Tile, as Tile.getCost.
+   */
+  public int getCost(int i)
+  {
+    if(pathable == null)
+      build();
+    byte[] indices = costs;
+    if(indices != null)
+      return palette[indices[i] & 0xFF];
+    int[] wide = wide_costs;
+    return (wide != null) ? wide[i] : PathFinder.STRAIGHT_COST;
+  }
+
+  // mutators
+
+  /**
+   * Forget everything, for instance because the Tiles have all been
+   * replaced: the arrays will be rebuilt the next time they are needed.
+   */
+  public synchronized void reset()
+  {
+    pathable = null;
+    costs = null;
+    n_costs = 0;
+    wide_costs = null;
+  }
+
+  public synchronized void tileChanged(Tile tile)
+  {
+    long[] bits = pathable;
+    if(bits == null)
+      return;
+    int i = (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+    if(tile.isPathable())
+      bits[i >>> 6] |= (1L << i);
+    else
+      bits[i >>> 6] &= ~(1L << i);
+    setCost(i, tile.getCost());
+  }
+
+  /* SUBROUTINES */
+
+  private synchronized long[] build()
+  {
+    if(pathable != null)
+      return pathable;
+
+    long[] bits = new long[(width * height + 63) / 64];
+    palette[0] = PathFinder.STRAIGHT_COST;
+    n_costs = 1;
+    for(int row = 0, i = 0; row < height; row++)
+      for(int col = 0; col < width; col++, i++)
+      {
+        Tile tile = grid.tiles[row][col];
+        if(tile.isPathable())
+          bits[i >>> 6] |= (1L << i);
+        setCost(i, tile.getCost());
+      }
+    return (pathable = bits);
+  }
+
+  private void setCost(int i, int cost)
+  {
+    if(wide_costs != null)
+    {
+      wide_costs[i] = cost;
+      return;
+    }
+    if(costs == null && cost == PathFinder.STRAIGHT_COST)
+      return;
+
+    // look the cost up in the palette, adding it if it's new
+    int index = 0;
+    while(index < n_costs && palette[index] != cost)
+      index++;
+    if(index == n_costs)
+    {
+      if(n_costs == MAX_COSTS)
+      {
+        widen();
+        wide_costs[i] = cost;
+        return;
+      }
+      palette[n_costs++] = cost;
+    }
+
+    // every Tile starts at index 0, the default cost
+    if(costs == null)
+      costs = new byte[width * height];
+    costs[i] = (byte)index;
+  }
+
+  /**
+   * Give up on the palette, and store every cost in full.
+   */
+  private void widen()
+  {
+    int[] wide = new int[width * height];
+    for(int i = 0; i < wide.length; i++)
+      wide[i] = palette[costs[i] & 0xFF];
+    wide_costs = wide;
+    costs = null;
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+
+/**
+ * Connected component labels of the pathable Tiles of a TileGrid: two Tiles
+ * have the same region if and only if a path exists between them. Diagonal
+ * steps never cut corners, so 4-connected regions are also 8-connected ones.
+ *
+ * Labels are computed the first time they are needed, then kept up to date
+ * as Tiles change. Opening a Tile merges the regions around it, in constant
+ * time thanks to a union-find structure over the labels. Closing a Tile can
+ * only split its region if the Tiles around it are no longer connected to
+ * each other locally, and only then are the pieces flooded with new labels.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+class TileRegions
+{
+  /* CONSTANTS */
+  public static final int NONE = -1;
+  private static final int[] D_COL = { 0, 1, 1, 1, 0, -1, -1, -1 };
+  private static final int[] D_ROW = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final int width, height;
+  // raw label of each Tile, or NONE: the region is the root of the label
+  private int[] label = null;
+  // union-find forest over the labels
+  private int[] parent = null;
+  private int n_labels = 0;
+  // scratch space for floods
+  private int[] queue = null;
+
+  /* METHODS */
+
+  // constructors
+
+  public TileRegions(TileGrid grid)
+  {
+    this.grid = grid;
+    height = grid.tiles.length;
+    width = grid.tiles[0].length;
+  }
+
+  // accessors
+
+  /**
+   * @param tile the Tile to check.
+   * @return the region of the Tile, or NONE if it isn't pathable.
+   */
+  public synchronized int getRegion(Tile tile)
+  {
+    if(label == null)
+      build();
+    return region(index(tile));
+  }
+
+  /**
+   * Find the Tile closest to a goal that can be reached from a start, looking
+   * at ever wider rings of Tiles around the goal rather than flooding
+   * outwards from the start.
+   *
+   * @param from the start Tile.
+   * @param to the goal Tile.
+   * @return the goal if it can be reached, the reachable Tile closest to it
+   * if not, or the goal itself if the start is not pathable, in which case
+   * nothing can be said.
+   */
+  public synchronized Tile getNearestReachable(Tile from, Tile to)
+  {
+    if(label == null)
+      build();
+    int target = region(index(from));
+    if(target == NONE || region(index(to)) == target)
+      return to;
+
+    int col = (int)to.grid_position.x, row = (int)to.grid_position.y,
+        best = NONE, best_distance = Integer.MAX_VALUE,
+        max_radius = Math.max(width, height);
+    for(int r = 1; r <= max_radius; r++)
+    {
+      // every Tile of ring r is at least r away from the goal
+      if(r * r > best_distance)
+        break;
+
+      for(int i = -r; i <= r; i++)
+      {
+        // top and bottom sides, then left and right ones (without corners)
+        best = closer(col + i, row - r, col, row, target, best);
+        best = closer(col + i, row + r, col, row, target, best);
+        if(i > -r && i < r)
+        {
+          best = closer(col - r, row + i, col, row, target, best);
+          best = closer(col + r, row + i, col, row, target, best);
+        }
+      }
+      if(best != NONE)
+      {
+        int dx = best % width - col, dy = best / width - row;
+        best_distance = dx * dx + dy * dy;
+      }
+    }
+    return (best == NONE) ? to : grid.tiles[best / width][best % width];
+  }
+
+  // mutators
+
+  /**
+   * Forget all labels, for instance because the Tiles have all been replaced:
+   * they will be recomputed the next time they are needed.
+   */
+  public synchronized void reset()
+  {
+    label = null;
+  }
+
+  /**
+   * Update the labels after a Tile has changed: this does nothing unless its
+   * pathability has.
+   *
+   * @param tile the Tile which has changed.
+   */
+  public synchronized void tileChanged(Tile tile)
+  {
+    if(label == null)
+      return;
+
+    int i = index(tile);
+    boolean was_pathable = (label[i] != NONE);
+    if(tile.isPathable() == was_pathable)
+      return;
+
+    if(was_pathable)
+      close(i);
+    else
+      open(i);
+
+    // labels are never reused, so start afresh once there are too many
+    if(n_labels > width * height)
+      label = null;
+  }
+
+  /* SUBROUTINES */
+
+  private int index(Tile tile)
+  {
+    return (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+  }
+
+  private boolean isLabelled(int col, int row)
+  {
+    return (col >= 0 && row >= 0 && col < width && row < height
+            && label[row * width + col] != NONE);
+  }
+
+  private int region(int i)
+  {
+    return (label[i] == NONE) ? NONE : find(label[i]);
+  }
+
+  private int find(int l)
+  {
+    // path halving
+    while(parent[l] != l)
+      l = parent[l] = parent[parent[l]];
+    return l;
+  }
+
+  private int newLabel()
+  {
+    if(n_labels == parent.length)
+      parent = Arrays.copyOf(parent, n_labels * 2);
+    parent[n_labels] = n_labels;
+    return n_labels++;
+  }
+
+  private void build()
+  {
+    int n = width * height;
+    if(queue == null)
+      queue = new int[n];
+    label = new int[n];
+    parent = new int[64];
+    n_labels = 0;
+
+    for(int i = 0; i < n; i++)
+      label[i] = grid.isPathable(i % width, i / width) ? 0 : NONE;
+    // a single label 0 stands for "pathable but not yet flooded"
+    int pending = newLabel();
+    for(int i = 0; i < n; i++)
+      if(label[i] == pending)
+        flood(i, pending, newLabel());
+  }
+
+  private void open(int i)
+  {
+    // join the regions of all the neighbours, if there are any
+    int col = i % width, row = i / width, root = NONE;
+    for(int d = 0; d < 8; d += 2)
+      if(isLabelled(col + D_COL[d], row + D_ROW[d]))
+      {
+        int r = find(label[(row + D_ROW[d]) * width + col + D_COL[d]]);
+        if(root == NONE)
+          root = r;
+        else if(r != root)
+          parent[r] = root;
+      }
+    label[i] = (root == NONE) ? newLabel() : root;
+  }
+
+  private void close(int i)
+  {
+    int col = i % width, row = i / width, old = find(label[i]);
+    label[i] = NONE;
+    if(!maySplit(col, row))
+      return;
+
+    // flood each side with a new label: the last side, whatever is left of
+    // the old region by then, can keep the old one
+    int last = NONE;
+    for(int d = 0; d < 8; d += 2)
+      if(isLabelled(col + D_COL[d], row + D_ROW[d]))
+        last = (row + D_ROW[d]) * width + col + D_COL[d];
+    for(int d = 0; d < 8; d += 2)
+    {
+      int j = (row + D_ROW[d]) * width + col + D_COL[d];
+      if(j != last && isLabelled(col + D_COL[d], row + D_ROW[d])
+      && find(label[j]) == old)
+        flood(j, old, newLabel());
+    }
+  }
+
+  /**
+   * Could closing a Tile split its region in two? Not if the pathable
+   * Tiles directly next to it are still connected through the ring of 8
+   * Tiles around it.
+   */
+  private boolean maySplit(int col, int row)
+  {
+    // start walking around the ring from a Tile that isn't pathable
+    int start = NONE;
+    for(int d = 0; d < 8 && start == NONE; d++)
+      if(!isLabelled(col + D_COL[d], row + D_ROW[d]))
+        start = d;
+    if(start == NONE)
+      return false;
+
+    // count the runs of pathable Tiles that include a direct neighbour
+    int runs = 0;
+    boolean in_run = false, direct = false;
+    for(int k = 1; k <= 8; k++)
+    {
+      int d = (start + k) & 7;
+      if(isLabelled(col + D_COL[d], row + D_ROW[d]))
+      {
+        in_run = true;
+        direct |= ((d & 1) == 0);
+      }
+      else if(in_run)
+      {
+        if(direct)
+          runs++;
+        in_run = direct = false;
+      }
+    }
+    return (runs > 1);
+  }
+
+  /**
+   * Relabel all the Tiles 4-connected to a seed whose region is old.
+   */
+  private void flood(int seed, int old, int new_label)
+  {
+    int head = 0, tail = 0;
+    label[seed] = new_label;
+    queue[tail++] = seed;
+    while(head < tail)
+    {
+      int i = queue[head++], col = i % width, row = i / width;
+      for(int d = 0; d < 8; d += 2)
+      {
+        int c = col + D_COL[d], r = row + D_ROW[d], j = r * width + c;
+        if(isLabelled(c, r) && label[j] != new_label && find(label[j]) == old)
+        {
+          label[j] = new_label;
+          queue[tail++] = j;
+        }
+      }
+    }
+  }
+
+  private int closer(int col, int row, int goal_col, int goal_row, int target,
+                     int best)
+  {
+    if(col < 0 || row < 0 || col >= width || row >= height)
+      return best;
+    int i = row * width + col;
+    if(region(i) != target)
+      return best;
+    if(best == NONE)
+      return i;
+    int dx = col - goal_col, dy = row - goal_row,
+        bx = best % width - goal_col, by = best / width - goal_row;
+    return (dx * dx + dy * dy < bx * bx + by * by) ? i : best;
+  }
+}
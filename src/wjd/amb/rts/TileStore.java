@@ -0,0 +1,354 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.Arrays;
+import wjd.math.Rect;
+import wjd.math.V2;
+
+/**
+ * The state of a grid of Tiles kept as a few arrays of primitives, one
+ * element per Tile and one array per layer, rather than as one object per
+ * Tile: a type identifier, a set of flags and a cost take 4 bytes per Tile,
+ * where a Tile object with its positions and area takes well over 100. Tiles
+ * are stored row by row, so loops over the whole grid walk straight through
+ * memory.
+ *
+ * Positions and areas are never stored, since they can be worked out from
+ * the column, the row and the size of the Tiles. Instead of objects, Tiles
+ * are read and written through their index, row * width + col, or through a
+ * Cursor, a lightweight view which can be moved from Tile to Tile.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class TileStore
+{
+  /* CONSTANTS */
+  public static final byte FLAG_PATHABLE = 0x01;
+
+  /* NESTING */
+
+  /**
+   * A view of one Tile of the store at a time, which can be moved around
+   * instead of creating an object per Tile:
+   *
+   *   for(TileStore.Cursor c = store.cursor(); c.next(); )
+   *     if(c.getType() == WATER)
+   *       c.setPathable(false);
+   */
+  public class Cursor
+  {
+    /* ATTRIBUTES */
+    private int col = -1, row = 0, index = -1;
+
+    /* METHODS */
+
+    // accessors
+
+    public int getCol()
+    {
+      return col;
+    }
+
+    public int getRow()
+    {
+      return row;
+    }
+
+    public int getIndex()
+    {
+      return index;
+    }
+
+    public int getType()
+    {
+      return TileStore.this.getType(index);
+    }
+
+    public int getFlags()
+    {
+      return TileStore.this.getFlags(index);
+    }
+
+    public boolean isPathable()
+    {
+      return ((flags[index] & FLAG_PATHABLE) != 0);
+    }
+
+    public int getCost()
+    {
+      return costs[index];
+    }
+
+    public V2 getGridPosition(V2 result)
+    {
+      return result.xy(col, row);
+    }
+
+    public V2 getPixelPosition(V2 result)
+    {
+      return TileStore.this.getPixelPosition(index, result);
+    }
+
+    public Rect getPixelArea(Rect result)
+    {
+      return TileStore.this.getPixelArea(index, result);
+    }
+
+    // mutators
+
+    /**
+     * Point at a Tile.
+     *
+     * @param col the column of the Tile, which must be on the grid.
+     * @param row the row of the Tile.
+     * @return this, so that multiple operations can be queued.
+     */
+    public Cursor moveTo(int col, int row)
+    {
+      this.col = col;
+      this.row = row;
+      this.index = row * width + col;
+      return this;
+    }
+
+    /**
+     * Move on to the next Tile, row by row: a new Cursor points just before
+     * the first Tile.
+     *
+     * @return false if there are no more Tiles.
+     */
+    public boolean next()
+    {
+      if(index + 1 >= types.length)
+        return false;
+      index++;
+      if(++col == width)
+      {
+        col = 0;
+        row++;
+      }
+      return true;
+    }
+
+    public Cursor setType(int type)
+    {
+      types[index] = (byte)type;
+      return this;
+    }
+
+    public Cursor setFlags(int flags)
+    {
+      TileStore.this.flags[index] = (byte)flags;
+      return this;
+    }
+
+    public Cursor setPathable(boolean pathable)
+    {
+      TileStore.this.setPathable(index, pathable);
+      return this;
+    }
+
+    public Cursor setCost(int cost)
+    {
+      TileStore.this.setCost(index, cost);
+      return this;
+    }
+  }
+
+  /* ATTRIBUTES */
+  public final int width, height;
+  private final V2 tile_size;
+  // one element per Tile, row by row
+  private final byte[] types;
+  private final byte[] flags;
+  private final short[] costs;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Create a store where every Tile is of type 0, pathable, and of the
+   * default cost.
+   *
+   * @param width the number of columns.
+   * @param height the number of rows.
+   * @param tile_size the size of a Tile in pixels, as ITileType.getSize.
+   */
+  public TileStore(int width, int height, V2 tile_size)
+  {
+    this.width = width;
+    this.height = height;
+    this.tile_size = tile_size.clone();
+    types = new byte[width * height];
+    flags = new byte[width * height];
+    costs = new short[width * height];
+    Arrays.fill(flags, FLAG_PATHABLE);
+    Arrays.fill(costs, (short)PathFinder.STRAIGHT_COST);
+  }
+
+  /**
+   * Copy the pathability and cost of the Tiles of a TileGrid, so that the
+   * grid's Tile objects can be done without.
+   *
+   * @param grid the TileGrid to copy.
+   */
+  public TileStore(TileGrid grid)
+  {
+    this(grid.tiles[0].length, grid.tiles.length,
+         grid.tiles[0][0].pixel_area.size());
+    for(int row = 0, i = 0; row < height; row++)
+      for(int col = 0; col < width; col++, i++)
+      {
+        Tile tile = grid.tiles[row][col];
+        setPathable(i, tile.isPathable());
+        setCost(i, tile.getCost());
+      }
+  }
+
+  // accessors
+
+  /**
+   * @return a new Cursor, pointing just before the first Tile.
+   */
+  public Cursor cursor()
+  {
+    return new Cursor();
+  }
+
+  public int index(int col, int row)
+  {
+    return row * width + col;
+  }
+
+  public boolean validGridPos(int col, int row)
+  {
+    return (col >= 0 && row >= 0 && col < width && row < height);
+  }
+
+  /**
+   * @param pixel_pos a position in pixels.
+   * @return the index of the Tile at the position, or -1 if it's off the
+   * grid.
+   */
+  public int pixelToIndex(V2 pixel_pos)
+  {
+    int col = (int)Math.floor(pixel_pos.x / tile_size.x),
+        row = (int)Math.floor(pixel_pos.y / tile_size.y);
+    return validGridPos(col, row) ? index(col, row) : -1;
+  }
+
+  /**
+   * @param i the index of the Tile.
+   * @return the type identifier of the Tile, from 0 to 255.
+   */
+  public int getType(int i)
+  {
+    return (types[i] & 0xFF);
+  }
+
+  /**
+   * @param i the index of the Tile.
+   * @return the flags of the Tile, from 0 to 255.
+   */
+  public int getFlags(int i)
+  {
+    return (flags[i] & 0xFF);
+  }
+
+  public boolean isPathable(int i)
+  {
+    return ((flags[i] & FLAG_PATHABLE) != 0);
+  }
+
+  public int getCost(int i)
+  {
+    return costs[i];
+  }
+
+  /**
+   * Work out the position of a Tile, rather than storing it.
+   *
+   * @param i the index of the Tile.
+   * @param result the vector to overwrite with the position.
+   * @return result, the position of the top-left corner of the Tile in
+   * pixels, as Tile.pixel_position.
+   */
+  public V2 getPixelPosition(int i, V2 result)
+  {
+    return result.xy((i % width) * tile_size.x, (i / width) * tile_size.y);
+  }
+
+  /**
+   * @param i the index of the Tile.
+   * @param result the rectangle to overwrite with the area.
+   * @return result, the area covered by the Tile in pixels, as
+   * Tile.pixel_area.
+   */
+  public Rect getPixelArea(int i, Rect result)
+  {
+    result.x = (i % width) * tile_size.x;
+    result.y = (i / width) * tile_size.y;
+    result.w = tile_size.x;
+    result.h = tile_size.y;
+    return result;
+  }
+
+  // mutators
+
+  /**
+   * @param i the index of the Tile.
+   * @param type the type identifier of the Tile, from 0 to 255: only the
+   * lowest 8 bits are kept.
+   */
+  public void setType(int i, int type)
+  {
+    types[i] = (byte)type;
+  }
+
+  /**
+   * @param i the index of the Tile.
+   * @param flags the flags of the Tile, from 0 to 255: only the lowest 8
+   * bits are kept.
+   */
+  public void setFlags(int i, int flags)
+  {
+    this.flags[i] = (byte)flags;
+  }
+
+  public void setPathable(int i, boolean pathable)
+  {
+    if(pathable)
+      flags[i] |= FLAG_PATHABLE;
+    else
+      flags[i] &= ~FLAG_PATHABLE;
+  }
+
+  /**
+   * @param i the index of the Tile.
+   * @param cost the cost of stepping onto the Tile, as Tile.getCost:
+   * anything over Short.MAX_VALUE is stored as Short.MAX_VALUE, rather than
+   * wrapping round to a negative cost the searches would prefer, and anything
+   * below 0 as 0.
+   */
+  public void setCost(int i, int cost)
+  {
+    costs[i] = (short)Math.max(0, Math.min(cost, Short.MAX_VALUE));
+  }
+}
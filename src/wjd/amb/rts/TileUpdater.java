@@ -0,0 +1,240 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import wjd.amb.control.EUpdateResult;
+import wjd.amb.control.IDynamic;
+
+/**
+ * Updates every Tile of a TileGrid in parallel: the rows are split into
+ * bands which are run on a fork-join pool, in one or more phases depending
+ * on the EUpdateSchedule, so that updates which look at their neighbours
+ * give the same result however the work happens to be spread over threads.
+ *
+ * TileGrid.tileChanged can't be called from the workers. Updates which
+ * change what the grid derives from its Tiles, such as pathability, should
+ * call this updater's tileChanged instead, and the grid is told at the end
+ * of the pass, on the thread which called update, in row order. The results
+ * returned by the Tiles' own update are ignored.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class TileUpdater implements IDynamic
+{
+  /* CONSTANTS */
+  // the fewest rows handed to a worker in one go
+  public static final int DEFAULT_BAND = 8;
+  // what a Band does to each Tile, besides a checkerboard phase from 0 to 3
+  private static final int ALL = -1;
+  private static final int COMMIT = -2;
+
+  /* NESTING */
+
+  /**
+   * A range of rows, split in two until it's small enough to run.
+   */
+  private class Band extends RecursiveAction
+  {
+    /* CONSTANTS */
+    private static final long serialVersionUID = 1L;
+
+    /* ATTRIBUTES */
+    private final int first_row, end_row, phase, t_delta;
+
+    /* METHODS */
+
+    // constructors
+    public Band(int first_row, int end_row, int phase, int t_delta)
+    {
+      this.first_row = first_row;
+      this.end_row = end_row;
+      this.phase = phase;
+      this.t_delta = t_delta;
+    }
+
+    /* IMPLEMENTS -- RECURSIVEACTION */
+    @Override
+    protected void compute()
+    {
+      if(end_row - first_row > band)
+      {
+        int middle = (first_row + end_row) >>> 1;
+        invokeAll(new Band(first_row, middle, phase, t_delta),
+                  new Band(middle, end_row, phase, t_delta));
+        return;
+      }
+
+      // every Tile, or one row in 2 and one column in 2 for a checkerboard
+      int step = (phase < 0) ? 1 : 2,
+          first_col = (phase < 0) ? 0 : (phase & 1);
+      int row = first_row;
+      if(phase >= 0 && (row & 1) != (phase >> 1))
+        row++;
+      for(; row < end_row; row += step)
+      {
+        Tile[] tiles = grid.tiles[row];
+        for(int col = first_col; col < tiles.length; col += step)
+          if(phase != COMMIT)
+            tiles[col].update(t_delta);
+          else if(tiles[col] instanceof IBufferedTile)
+            ((IBufferedTile)tiles[col]).commit();
+      }
+    }
+  }
+
+  /* ATTRIBUTES */
+  private final TileGrid grid;
+  private final ForkJoinPool pool;
+  private final EUpdateSchedule schedule;
+  private final Queue<Tile> changed = new ConcurrentLinkedQueue<Tile>();
+  private int band = DEFAULT_BAND;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Prepare to update a grid.
+   *
+   * @param grid the TileGrid whose Tiles are to be updated.
+   * @param schedule how to order the updates.
+   * @param pool the threads to run the updates on.
+   */
+  public TileUpdater(TileGrid grid, EUpdateSchedule schedule,
+                     ForkJoinPool pool)
+  {
+    this.grid = grid;
+    this.schedule = schedule;
+    this.pool = pool;
+  }
+
+  public TileUpdater(TileGrid grid, EUpdateSchedule schedule)
+  {
+    this(grid, schedule, new ForkJoinPool());
+  }
+
+  // mutators
+
+  /**
+   * Set how many rows are updated in one go by a worker: fewer spread the
+   * work more evenly, more cost less to hand out.
+   *
+   * @param band the smallest number of rows handed to a worker.
+   * @return this, so that multiple operations can be queued.
+   */
+  public TileUpdater setBand(int band)
+  {
+    this.band = Math.max(1, band);
+    return this;
+  }
+
+  /**
+   * Queue a Tile to be passed to TileGrid.tileChanged at the end of the
+   * pass: this can be called from the Tiles' updates.
+   *
+   * @param tile the Tile which has changed.
+   */
+  public void tileChanged(Tile tile)
+  {
+    changed.add(tile);
+  }
+
+  /**
+   * Stop the threads of the pool.
+   */
+  public void shutdown()
+  {
+    pool.shutdown();
+  }
+
+  /* SUBROUTINES */
+
+  private void run(int phase, int t_delta)
+  {
+    pool.invoke(new Band(0, grid.tiles.length, phase, t_delta));
+  }
+
+  /**
+   * Tell the grid about the Tiles changed during the pass, in row order and
+   * once each, so that the result doesn't depend on which thread got there
+   * first.
+   */
+  private void flushChanges()
+  {
+    if(changed.isEmpty())
+      return;
+    List<Tile> tiles = new ArrayList<Tile>(changed);
+    changed.clear();
+    Collections.sort(tiles, new Comparator<Tile>()
+    {
+      @Override
+      public int compare(Tile a, Tile b)
+      {
+        int rows = Float.compare(a.grid_position.y, b.grid_position.y);
+        return (rows != 0)
+               ? rows
+               : Float.compare(a.grid_position.x, b.grid_position.x);
+      }
+    });
+    Tile previous = null;
+    for(Tile tile : tiles)
+      if(tile != previous)
+        grid.tileChanged(previous = tile);
+  }
+
+  /* IMPLEMENTS -- IDYNAMIC */
+
+  /**
+   * Update every Tile of the grid, returning once they have all been
+   * updated.
+   *
+   * @param t_delta the number of milliseconds that have elapsed, passed on
+   * to each Tile.
+   * @return CONTINUE.
+   */
+  @Override
+  public EUpdateResult update(int t_delta)
+  {
+    switch(schedule)
+    {
+      case INDEPENDENT:
+        run(ALL, t_delta);
+        break;
+
+      case CHECKERBOARD:
+        for(int phase = 0; phase < 4; phase++)
+          run(phase, t_delta);
+        break;
+
+      case DOUBLE_BUFFERED:
+        run(ALL, t_delta);
+        run(COMMIT, t_delta);
+        break;
+    }
+    flushChanges();
+    return EUpdateResult.CONTINUE;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.bench;
+
+import wjd.amb.control.EUpdateResult;
+import wjd.amb.rts.ITileType;
+import wjd.amb.rts.PathFinder;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.TileGrid;
+import wjd.amb.view.ICanvas;
+import wjd.math.V2;
+
+/**
+ * A bare Tile which is either pathable or not, with a cost which can be
+ * changed, and which draws nothing, so that benchmark maps can be built
+ * without a game or a display.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class BenchmarkTile extends Tile
+{
+  /* CONSTANTS */
+  private static final V2 SIZE = new V2(1, 1);
+  private static final V2 HSIZE = SIZE.clone().scale(0.5f);
+  private static final V2 ISIZE = SIZE.clone().inv();
+
+  public static final ITileType TYPE = new ITileType()
+  {
+    @Override
+    public Tile create(int row, int col, TileGrid grid)
+    {
+      return new BenchmarkTile(row, col, grid);
+    }
+
+    @Override
+    public V2 getSize()
+    {
+      return SIZE;
+    }
+
+    @Override
+    public V2 getHSize()
+    {
+      return HSIZE;
+    }
+
+    @Override
+    public V2 getISize()
+    {
+      return ISIZE;
+    }
+  };
+
+  /* ATTRIBUTES */
+  public boolean pathable = true;
+  public int cost = PathFinder.STRAIGHT_COST;
+
+  /* METHODS */
+
+  // constructors
+  public BenchmarkTile(int row, int col, TileGrid grid)
+  {
+    super(row, col, SIZE, grid);
+  }
+
+  /* OVERRIDES -- TILE */
+
+  @Override
+  public int getCost()
+  {
+    return cost;
+  }
+
+  /* IMPLEMENTS -- TILE */
+
+  @Override
+  public boolean isPathable()
+  {
+    return pathable;
+  }
+
+  /* IMPLEMENTS -- IVISIBLE */
+
+  @Override
+  public void render(ICanvas canvas)
+  {
+    // nothing to see
+  }
+
+  /* IMPLEMENTS -- IDYNAMIC */
+
+  @Override
+  public EUpdateResult update(int t_delta)
+  {
+    return EUpdateResult.CONTINUE;
+  }
+}
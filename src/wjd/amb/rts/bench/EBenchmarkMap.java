@@ -0,0 +1,224 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.bench;
+
+import java.util.Random;
+import wjd.amb.rts.TileGrid;
+import wjd.math.V2;
+
+/**
+ * The standard kinds of map path-finding is measured on, each generated from
+ * a seed so that runs can be compared with each other.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public enum EBenchmarkMap
+{
+  /**
+   * No obstacles at all: the best case, where A* goes straight to the goal.
+   */
+  OPEN
+  {
+    @Override
+    protected void carve(boolean[][] pathable, Random random)
+    {
+      fill(pathable, true);
+    }
+  },
+  /**
+   * A fifth of the Tiles blocked at random.
+   */
+  RANDOM_20
+  {
+    @Override
+    protected void carve(boolean[][] pathable, Random random)
+    {
+      scatter(pathable, 0.2, random);
+    }
+  },
+  /**
+   * Two fifths of the Tiles blocked at random, close to the point where the
+   * map falls apart into islands, so paths wind a great deal.
+   */
+  RANDOM_40
+  {
+    @Override
+    protected void carve(boolean[][] pathable, Random random)
+    {
+      scatter(pathable, 0.4, random);
+    }
+  },
+  /**
+   * A perfect maze of corridors one Tile wide: the worst case, where the
+   * heuristic is of almost no help.
+   */
+  MAZE
+  {
+    @Override
+    protected void carve(boolean[][] pathable, Random random)
+    {
+      fill(pathable, false);
+      int rows = (pathable.length + 1) / 2, cols = (pathable[0].length + 1) / 2;
+      boolean[] visited = new boolean[rows * cols];
+      int[] stack = new int[rows * cols];
+      int top = 0;
+
+      // depth-first, knocking down the wall to a random unvisited cell
+      stack[top++] = 0;
+      visited[0] = true;
+      pathable[0][0] = true;
+      int[] options = new int[4];
+      while(top > 0)
+      {
+        int cell = stack[top - 1], row = cell / cols, col = cell % cols,
+            n_options = 0;
+        for(int d = 0; d < 4; d++)
+        {
+          int n_row = row + D_ROW[d], n_col = col + D_COL[d];
+          if(n_row >= 0 && n_col >= 0 && n_row < rows && n_col < cols
+          && !visited[n_row * cols + n_col])
+            options[n_options++] = d;
+        }
+        if(n_options == 0)
+        {
+          top--;
+          continue;
+        }
+        int d = options[random.nextInt(n_options)],
+            n_row = row + D_ROW[d], n_col = col + D_COL[d];
+        visited[n_row * cols + n_col] = true;
+        pathable[row * 2 + D_ROW[d]][col * 2 + D_COL[d]] = true;
+        pathable[n_row * 2][n_col * 2] = true;
+        stack[top++] = n_row * cols + n_col;
+      }
+    }
+  },
+  /**
+   * Rectangular rooms joined one after the other by corridors, like the
+   * inside of a building.
+   */
+  ROOMS
+  {
+    @Override
+    protected void carve(boolean[][] pathable, Random random)
+    {
+      fill(pathable, false);
+      int height = pathable.length, width = pathable[0].length,
+          max_side = Math.max(4, Math.min(24, Math.min(width, height) / 4)),
+          n_rooms = Math.max(2, width * height / (max_side * max_side * 2)),
+          previous_col = -1, previous_row = -1;
+
+      for(int i = 0; i < n_rooms; i++)
+      {
+        int room_width = 3 + random.nextInt(max_side - 2),
+            room_height = 3 + random.nextInt(max_side - 2),
+            left = random.nextInt(Math.max(1, width - room_width)),
+            top = random.nextInt(Math.max(1, height - room_height));
+        rectangle(pathable, left, top, room_width, room_height);
+
+        // corridor from the centre of the previous room, along then down
+        int col = Math.min(width - 1, left + room_width / 2),
+            row = Math.min(height - 1, top + room_height / 2);
+        if(previous_col >= 0)
+        {
+          rectangle(pathable, Math.min(col, previous_col), previous_row,
+                    Math.abs(col - previous_col) + 1, 1);
+          rectangle(pathable, col, Math.min(row, previous_row),
+                    1, Math.abs(row - previous_row) + 1);
+        }
+        previous_col = col;
+        previous_row = row;
+      }
+    }
+  };
+
+  /* CONSTANTS */
+  private static final int[] D_COL = { 0, -1, 1, 0 };
+  private static final int[] D_ROW = { -1, 0, 0, 1 };
+
+  /* METHODS */
+
+  /**
+   * Generate a square map of this kind.
+   *
+   * @param size the width and height of the map, in Tiles.
+   * @param seed the seed of the random generator, so that the same map can
+   * be generated again.
+   * @return a new TileGrid of BenchmarkTiles.
+   */
+  public TileGrid create(int size, long seed)
+  {
+    boolean[][] pathable = new boolean[size][size];
+    carve(pathable, new Random(seed));
+    return createGrid(pathable);
+  }
+
+  /* INTERFACE */
+
+  /**
+   * Decide which Tiles are pathable.
+   *
+   * @param pathable the map to fill, row by row, which starts all false.
+   * @param random the generator to draw from.
+   */
+  protected abstract void carve(boolean[][] pathable, Random random);
+
+  /* FUNCTIONS */
+
+  /**
+   * Build a grid from a pathability map.
+   *
+   * @param pathable whether each Tile is pathable, row by row.
+   * @return a new TileGrid of BenchmarkTiles.
+   */
+  public static TileGrid createGrid(boolean[][] pathable)
+  {
+    TileGrid grid = new TileGrid(new V2(pathable[0].length, pathable.length),
+                                 BenchmarkTile.TYPE).clear();
+    for(int row = 0; row < pathable.length; row++)
+      for(int col = 0; col < pathable[row].length; col++)
+        ((BenchmarkTile)grid.tiles[row][col]).pathable = pathable[row][col];
+    return grid;
+  }
+
+  /* SUBROUTINES */
+
+  private static void fill(boolean[][] pathable, boolean value)
+  {
+    for(int row = 0; row < pathable.length; row++)
+      for(int col = 0; col < pathable[row].length; col++)
+        pathable[row][col] = value;
+  }
+
+  private static void scatter(boolean[][] pathable, double blocked,
+                              Random random)
+  {
+    for(int row = 0; row < pathable.length; row++)
+      for(int col = 0; col < pathable[row].length; col++)
+        pathable[row][col] = (random.nextDouble() >= blocked);
+  }
+
+  private static void rectangle(boolean[][] pathable, int left, int top,
+                                int width, int height)
+  {
+    for(int row = top; row < top + height && row < pathable.length; row++)
+      for(int col = left; col < left + width && col < pathable[row].length;
+          col++)
+        pathable[row][col] = true;
+  }
+}
@@ -0,0 +1,404 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import wjd.amb.rts.PathSearch;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.TileGrid;
+
+/**
+ * Measure path-finding on the standard kinds of map, so that changes to the
+ * searches can be checked for regressions. Runs headless from the command
+ * line, printing one line per map:
+ *
+ *   java -Xmx2g wjd.amb.rts.bench.PathBenchmark [options] [file.map ...]
+ *
+ *   -sizes 64,256,1024,2048  the widths of the generated maps
+ *   -queries 100             the number of start and goal pairs per map
+ *   -threads n               the threads running the batched queries
+ *   -rounds 5                the number of times each query is measured
+ *   -diagonals               allow diagonal steps
+ *   -seed 1                  the seed of the maps and queries
+ *
+ * Maps in the Moving AI ".map" format can be given instead of generating
+ * them. For each map this reports the mean number of Tiles expanded, the
+ * percentiles of the latency of a single PathSearch, the memory allocated per
+ * search (on JVMs which can count it, otherwise -1) and the throughput of
+ * PathSearch queries run one after the other and spread over a pool of
+ * threads, so that both throughputs measure the same search.
+ *
+ * Searches are run for a while before anything is measured, so that the JIT
+ * has compiled them, then every query is measured in several rounds: the
+ * percentiles are over the latencies of all the rounds, and the throughputs
+ * those of the median round, so that a garbage collection or a late
+ * compilation doesn't dominate them.
+ *
+ * The Tiles of a 2048 x 2048 map take several hundred megabytes on their own,
+ * hence the -Xmx.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class PathBenchmark
+{
+  /* CONSTANTS */
+  private static final int[] DEFAULT_SIZES = { 64, 256, 1024, 2048 };
+  private static final int DEFAULT_QUERIES = 100;
+  private static final int DEFAULT_ROUNDS = 5;
+  // how long searches are run before measuring, so that the JIT has
+  // compiled them
+  private static final long WARM_UP_MILLIS = 2000;
+  // attempts at finding a goal reachable from a start before giving up
+  private static final int MAX_ATTEMPTS = 1000;
+
+  /* ATTRIBUTES */
+  private final int n_queries;
+  private final int n_threads;
+  private final int n_rounds;
+  private final boolean diagonals;
+  private final long seed;
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Prepare a benchmark.
+   *
+   * @param n_queries the number of start and goal pairs to search per map.
+   * @param n_threads the number of threads for the batched queries.
+   * @param n_rounds the number of times each query is measured.
+   * @param diagonals true to allow diagonal steps.
+   * @param seed the seed from which the queries are drawn.
+   */
+  public PathBenchmark(int n_queries, int n_threads, int n_rounds,
+                       boolean diagonals, long seed)
+  {
+    this.n_queries = n_queries;
+    this.n_threads = n_threads;
+    this.n_rounds = Math.max(1, n_rounds);
+    this.diagonals = diagonals;
+    this.seed = seed;
+  }
+
+  /**
+   * Measure one map and print the results.
+   *
+   * @param name how to call the map in the report.
+   * @param grid the map.
+   */
+  public void run(String name, TileGrid grid)
+  {
+    Tile[][] queries = drawQueries(grid);
+    int n = queries.length;
+    if(n == 0)
+    {
+      System.out.println(name + ": no pathable Tiles");
+      return;
+    }
+
+    // let the JIT settle before anything is measured
+    long warm_until = System.currentTimeMillis() + WARM_UP_MILLIS;
+    for(int i = 0; i < n || System.currentTimeMillis() < warm_until; i++)
+      new PathSearch(queries[i % n][0], queries[i % n][1], false, diagonals)
+        .getPath();
+
+    // how much work each search does
+    long expanded = 0, length = 0;
+    for(int i = 0; i < n; i++)
+    {
+      PathSearch search
+        = new PathSearch(queries[i][0], queries[i][1], false, diagonals);
+      expanded += search.getExpansions();
+      length += search.getPath().size();
+    }
+
+    // how long each search takes, and how much it allocates
+    System.gc();
+    long[] latencies = new long[n * n_rounds], rounds = new long[n_rounds];
+    long allocated = getAllocatedBytes();
+    for(int round = 0; round < n_rounds; round++)
+    {
+      long begin = System.nanoTime();
+      for(int i = 0; i < n; i++)
+      {
+        long t0 = System.nanoTime();
+        new PathSearch(queries[i][0], queries[i][1], false, diagonals)
+          .getPath();
+        latencies[round * n + i] = System.nanoTime() - t0;
+      }
+      rounds[round] = System.nanoTime() - begin;
+    }
+    allocated = (allocated < 0) ? -1 : getAllocatedBytes() - allocated;
+    Arrays.sort(latencies);
+    long single = median(rounds);
+
+    // how many searches the workers get through together
+    long batched = runBatch(queries);
+
+    System.out.println(String.format(
+      "%-24s %6d %10d %8d %9d %9d %9d %9d %10d %10.1f %10.1f",
+      name, n, expanded / n, length / n,
+      percentile(latencies, 50), percentile(latencies, 90),
+      percentile(latencies, 99), latencies[latencies.length - 1] / 1000,
+      (allocated < 0) ? -1 : allocated / latencies.length / 1024,
+      n * 1e9 / single, n * 1e9 / batched));
+  }
+
+  /* SUBROUTINES */
+
+  private static void printHeader()
+  {
+    System.out.println(String.format(
+      "%-24s %6s %10s %8s %9s %9s %9s %9s %10s %10s %10s",
+      "map", "pairs", "expanded", "length", "p50(us)", "p90(us)", "p99(us)",
+      "max(us)", "alloc(KB)", "single/s", "batched/s"));
+  }
+
+  /**
+   * Draw random start and goal pairs which are connected, so that every
+   * query measures a real search rather than a rejected one.
+   */
+  private Tile[][] drawQueries(TileGrid grid)
+  {
+    Random random = new Random(seed);
+    List<Tile[]> queries = new ArrayList<Tile[]>(n_queries);
+    for(int i = 0; i < n_queries; i++)
+    {
+      Tile start = drawPathable(grid, random);
+      if(start == null)
+        break;
+      for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++)
+      {
+        Tile goal = drawPathable(grid, random);
+        if(goal != start && grid.isReachable(start, goal))
+        {
+          queries.add(new Tile[] { start, goal });
+          break;
+        }
+      }
+    }
+    return queries.toArray(new Tile[queries.size()][]);
+  }
+
+  private static Tile drawPathable(TileGrid grid, Random random)
+  {
+    int height = grid.tiles.length, width = grid.tiles[0].length;
+    for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++)
+    {
+      Tile tile = grid.tiles[random.nextInt(height)][random.nextInt(width)];
+      if(tile.isPathable())
+        return tile;
+    }
+    return null;
+  }
+
+  /**
+   * @return the nanoseconds taken by a pool of threads to find all the
+   * paths with PathSearch, one search per query, in the median round.
+   */
+  private long runBatch(Tile[][] queries)
+  {
+    ExecutorService workers = Executors.newFixedThreadPool(n_threads);
+    List<Callable<Object>> searches
+      = new ArrayList<Callable<Object>>(queries.length);
+    for(final Tile[] query : queries)
+      searches.add(new Callable<Object>()
+      {
+        @Override
+        public Object call()
+        {
+          return new PathSearch(query[0], query[1], false, diagonals)
+            .getPath();
+        }
+      });
+    try
+    {
+      // start the workers and warm them up, then measure
+      long warm_until = System.currentTimeMillis() + WARM_UP_MILLIS;
+      do
+        batch(workers, searches);
+      while(System.currentTimeMillis() < warm_until);
+      System.gc();
+      long[] rounds = new long[n_rounds];
+      for(int round = 0; round < n_rounds; round++)
+      {
+        long begin = System.nanoTime();
+        batch(workers, searches);
+        rounds[round] = System.nanoTime() - begin;
+      }
+      return median(rounds);
+    }
+    finally
+    {
+      workers.shutdown();
+    }
+  }
+
+  private static void batch(ExecutorService workers,
+                            List<Callable<Object>> searches)
+  {
+    try
+    {
+      for(Future<Object> search : workers.invokeAll(searches))
+        search.get();
+    }
+    catch(InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+    }
+    catch(ExecutionException ex)
+    {
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
+  private static long median(long[] values)
+  {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  private static long percentile(long[] sorted, int percent)
+  {
+    int i = (sorted.length * percent + 99) / 100 - 1;
+    return sorted[Math.max(0, i)] / 1000;
+  }
+
+  /**
+   * @return the bytes allocated so far by this thread, or -1 if the JVM
+   * can't say.
+   */
+  private long getAllocatedBytes()
+  {
+    if(!(threads instanceof com.sun.management.ThreadMXBean))
+      return -1;
+    return ((com.sun.management.ThreadMXBean)threads)
+      .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Read a map in the Moving AI format: a header ending with the line "map",
+   * then one line of characters per row, where '.', 'G' and 'S' are pathable
+   * and anything else isn't.
+   */
+  private static TileGrid load(File file) throws IOException
+  {
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try
+    {
+      int width = 0, height = 0;
+      String line;
+      while((line = reader.readLine()) != null && !line.trim().equals("map"))
+      {
+        String[] words = line.trim().split("\\s+");
+        if(words[0].equals("width"))
+          width = Integer.parseInt(words[1]);
+        else if(words[0].equals("height"))
+          height = Integer.parseInt(words[1]);
+      }
+      if(width <= 0 || height <= 0)
+        throw new IOException(file + ": no map size in the header");
+
+      boolean[][] pathable = new boolean[height][width];
+      for(int row = 0; row < height; row++)
+      {
+        if((line = reader.readLine()) == null)
+          throw new IOException(file + ": only " + row + " rows");
+        for(int col = 0; col < width && col < line.length(); col++)
+        {
+          char c = line.charAt(col);
+          pathable[row][col] = (c == '.' || c == 'G' || c == 'S');
+        }
+      }
+      return EBenchmarkMap.createGrid(pathable);
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  private static int[] parseSizes(String list)
+  {
+    String[] words = list.split(",");
+    int[] sizes = new int[words.length];
+    for(int i = 0; i < words.length; i++)
+      sizes[i] = Integer.parseInt(words[i].trim());
+    return sizes;
+  }
+
+  /* MAIN */
+  public static void main(String args[]) throws IOException
+  {
+    // nothing here should ever need a display
+    System.setProperty("java.awt.headless", "true");
+
+    int[] sizes = DEFAULT_SIZES;
+    int n_queries = DEFAULT_QUERIES, n_rounds = DEFAULT_ROUNDS,
+        n_threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+    boolean diagonals = false;
+    long seed = 1;
+    List<File> files = new ArrayList<File>();
+    for(int i = 0; i < args.length; i++)
+    {
+      if(args[i].equals("-sizes"))
+        sizes = parseSizes(args[++i]);
+      else if(args[i].equals("-queries"))
+        n_queries = Integer.parseInt(args[++i]);
+      else if(args[i].equals("-threads"))
+        n_threads = Integer.parseInt(args[++i]);
+      else if(args[i].equals("-rounds"))
+        n_rounds = Integer.parseInt(args[++i]);
+      else if(args[i].equals("-diagonals"))
+        diagonals = true;
+      else if(args[i].equals("-seed"))
+        seed = Long.parseLong(args[++i]);
+      else
+        files.add(new File(args[i]));
+    }
+
+    PathBenchmark benchmark
+      = new PathBenchmark(n_queries, n_threads, n_rounds, diagonals, seed);
+    printHeader();
+    if(!files.isEmpty())
+      for(File file : files)
+        benchmark.run(file.getName(), load(file));
+    else
+      for(int size : sizes)
+        for(EBenchmarkMap map : EBenchmarkMap.values())
+          benchmark.run(map.name().toLowerCase() + " " + size + "x" + size,
+                        map.create(size, seed));
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.check;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import wjd.amb.rts.ChunkedTileGrid;
+import wjd.amb.rts.ITileCodec;
+import wjd.amb.rts.PathFinder;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.bench.BenchmarkTile;
+import wjd.math.V2;
+
+/**
+ * Check that a large ChunkedTileGrid gives back every edit made to its Tiles
+ * after their chunks have been evicted and unpacked again, and measure how
+ * much memory it keeps once scattered edits have touched a small part of it.
+ * The edits are bursts of work in random windows, as a player scrolling
+ * around a map would make. Runs headless from the command line, and exits
+ * with 1 if any Tile comes back wrong:
+ *
+ *   java wjd.amb.rts.check.ChunkedGridCheck [seed]
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class ChunkedGridCheck
+{
+  /* CONSTANTS */
+  private static final int SIZE = 4096;
+  private static final int WINDOWS = 50;
+  private static final int WINDOW_SIZE = 300;
+  private static final int EDITS = 2000;
+  // how many Tiles are read back between two evictions
+  private static final int EVERY = 500;
+
+  // pathable in the lowest bit, cost in hundreds above it
+  private static final ITileCodec CODEC = new ITileCodec()
+  {
+    @Override
+    public byte encode(Tile tile)
+    {
+      BenchmarkTile t = (BenchmarkTile)tile;
+      return (byte)((t.pathable ? 1 : 0)
+                    | ((t.cost / PathFinder.STRAIGHT_COST) << 1));
+    }
+
+    @Override
+    public void decode(Tile tile, byte state)
+    {
+      BenchmarkTile t = (BenchmarkTile)tile;
+      t.pathable = ((state & 1) != 0);
+      t.cost = (state >> 1) * PathFinder.STRAIGHT_COST;
+    }
+  };
+
+  /* FUNCTIONS */
+
+  private static int state(BenchmarkTile tile)
+  {
+    return (tile.pathable ? 1 : 0) + tile.cost;
+  }
+
+  /* MAIN */
+  public static void main(String args[])
+  {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+    Random random = new Random(seed);
+    ChunkedTileGrid<BenchmarkTile> grid = new ChunkedTileGrid<BenchmarkTile>(
+      new V2(SIZE, SIZE), BenchmarkTile.TYPE, CODEC);
+    Map<Long, Integer> expected = new HashMap<Long, Integer>();
+    int n_wrong = 0;
+
+    // edit bursts of Tiles, evicting whatever the last burst didn't touch
+    for(int window = 0; window < WINDOWS; window++)
+    {
+      int left = random.nextInt(SIZE - WINDOW_SIZE),
+          top = random.nextInt(SIZE - WINDOW_SIZE);
+      for(int edit = 0; edit < EDITS; edit++)
+      {
+        int col = left + random.nextInt(WINDOW_SIZE),
+            row = top + random.nextInt(WINDOW_SIZE);
+        BenchmarkTile tile = grid.getTile(col, row);
+        Long key = (long)row * SIZE + col;
+        Integer state = expected.get(key);
+        if(tile.grid_position.x != col || tile.grid_position.y != row
+        || (state != null && state != state(tile)))
+          n_wrong++;
+        tile.pathable = random.nextBoolean();
+        tile.cost = PathFinder.STRAIGHT_COST * (1 + random.nextInt(3));
+        expected.put(key, state(tile));
+      }
+      grid.evictUntouched();
+    }
+
+    // measure: the expected states are counted in too, around 10 MB of it
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    long used = runtime.totalMemory() - runtime.freeMemory();
+    System.out.println("chunked grid: " + grid.getChunkCount() + " chunks of "
+                       + (SIZE / grid.getChunkSize())
+                         * (SIZE / grid.getChunkSize())
+                       + " created, " + grid.getLoadedChunkCount()
+                       + " loaded, " + (used >> 20) + " MB in use");
+
+    // read everything back, packing the grid again every so often
+    int n_read = 0;
+    for(Map.Entry<Long, Integer> entry : expected.entrySet())
+    {
+      if(++n_read % EVERY == 0)
+        grid.evictAll();
+      long key = entry.getKey();
+      if(state(grid.getTile((int)(key % SIZE), (int)(key / SIZE)))
+         != entry.getValue())
+        n_wrong++;
+    }
+    System.out.println("chunked grid: " + expected.size() + " Tiles edited, "
+                       + n_wrong + " wrong");
+    System.exit((n_wrong == 0) ? 0 : 1);
+  }
+}
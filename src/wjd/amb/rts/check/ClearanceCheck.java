@@ -0,0 +1,149 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.check;
+
+import java.util.Deque;
+import java.util.Random;
+import wjd.amb.rts.PathSearch;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.TileGrid;
+import wjd.amb.rts.bench.BenchmarkTile;
+import wjd.amb.rts.bench.EBenchmarkMap;
+
+/**
+ * Check the clearances a TileGrid keeps up to date against squares of
+ * pathable Tiles counted from scratch, while random Tiles are opened and
+ * closed, and check that every Tile of a path found for a large unit leaves
+ * room for its whole footprint, including both sides of a diagonal step.
+ * Runs headless from the command line, and exits with 1 if anything
+ * disagrees:
+ *
+ *   java wjd.amb.rts.check.ClearanceCheck [seed]
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class ClearanceCheck
+{
+  /* CONSTANTS */
+  private static final int MAPS = 30;
+  private static final int CHANGES = 200;
+  private static final int WIDTH = 40, HEIGHT = 30;
+  // the cap TileGrid puts on clearances
+  private static final int MAX_CLEARANCE = 16;
+
+  /* FUNCTIONS */
+
+  /**
+   * @return the size of the largest square of pathable Tiles with (col, row)
+   * as its top-left corner, capped at MAX_CLEARANCE.
+   */
+  private static int clearance(TileGrid grid, int col, int row)
+  {
+    int size = 0;
+    while(size < MAX_CLEARANCE && col + size < WIDTH && row + size < HEIGHT)
+    {
+      // the square grows by one row and one column
+      for(int i = 0; i <= size; i++)
+        if(!grid.tiles[row + size][col + i].isPathable()
+        || !grid.tiles[row + i][col + size].isPathable())
+          return size;
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * @return the number of Tiles along the path where a unit of the given
+   * size doesn't fit.
+   */
+  private static int comparePath(TileGrid grid, Tile start, Deque<Tile> path,
+                                 int size)
+  {
+    int n_wrong = 0;
+    Tile previous = start;
+    for(Tile tile : path)
+    {
+      int col = (int)tile.grid_position.x, row = (int)tile.grid_position.y,
+          from_col = (int)previous.grid_position.x,
+          from_row = (int)previous.grid_position.y;
+      if(clearance(grid, col, row) < size)
+        n_wrong++;
+      else if(col != from_col && row != from_row
+      && (clearance(grid, col, from_row) < size
+          || clearance(grid, from_col, row) < size))
+        n_wrong++;
+      previous = tile;
+    }
+    return n_wrong;
+  }
+
+  /* MAIN */
+  public static void main(String args[])
+  {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+    int n_checks = 0, n_wrong = 0, n_paths = 0, n_wrong_paths = 0;
+    for(int map = 0; map < MAPS; map++)
+    {
+      Random random = new Random(seed + map);
+      boolean[][] pathable = new boolean[HEIGHT][WIDTH];
+      for(boolean[] row : pathable)
+        for(int col = 0; col < WIDTH; col++)
+          row[col] = (random.nextDouble() >= 0.06);
+      TileGrid grid = EBenchmarkMap.createGrid(pathable);
+
+      for(int change = 0; change < CHANGES; change++)
+      {
+        BenchmarkTile tile = (BenchmarkTile)
+          grid.tiles[random.nextInt(HEIGHT)][random.nextInt(WIDTH)];
+        tile.pathable = !tile.pathable;
+        tile.changed();
+
+        if(change % 20 == 0)
+          for(int row = 0; row < HEIGHT; row++)
+            for(int col = 0; col < WIDTH; col++)
+            {
+              n_checks++;
+              if(grid.getClearance(grid.tiles[row][col])
+                 != clearance(grid, col, row))
+                n_wrong++;
+            }
+
+        if(change % 10 == 0)
+          for(boolean diagonals : new boolean[] { false, true })
+          {
+            int size = 2 + random.nextInt(2);
+            Tile start = grid.tiles[random.nextInt(HEIGHT - size)]
+                                   [random.nextInt(WIDTH - size)],
+                 end = grid.tiles[random.nextInt(HEIGHT - size)]
+                                 [random.nextInt(WIDTH - size)];
+            if(grid.getClearance(start) < size)
+              continue;
+            n_paths++;
+            Deque<Tile> path
+              = new PathSearch(start, end, false, diagonals, size).getPath();
+            if(comparePath(grid, start, path, size) > 0)
+              n_wrong_paths++;
+          }
+      }
+    }
+    System.out.println("clearance: " + n_checks + " Tiles, " + n_wrong
+                       + " wrong, " + n_paths + " paths, " + n_wrong_paths
+                       + " wrong");
+    System.exit((n_wrong == 0 && n_wrong_paths == 0) ? 0 : 1);
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.check;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import wjd.amb.rts.PathSearch;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.TileGrid;
+import wjd.amb.rts.bench.BenchmarkTile;
+import wjd.amb.rts.bench.EBenchmarkMap;
+
+/**
+ * Check the connected regions a TileGrid keeps up to date against a flood
+ * fill from scratch, while random Tiles are opened and closed: two Tiles must
+ * share a region if and only if the flood fill connects them. Goals which
+ * can't be reached must be replaced, by getNearestReachable and by
+ * PathSearch, with the reachable Tile closest to them. Runs headless from the
+ * command line, and exits with 1 if anything disagrees:
+ *
+ *   java wjd.amb.rts.check.RegionCheck [seed]
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class RegionCheck
+{
+  /* CONSTANTS */
+  private static final int MAPS = 60;
+  private static final int CHANGES = 400;
+  // how many changes between two comparisons
+  private static final int EVERY = 3;
+  private static final int[] D_COL = { 0, -1, 1, 0 };
+  private static final int[] D_ROW = { -1, 0, 0, 1 };
+
+  /* FUNCTIONS */
+
+  /**
+   * Label the 4-connected regions of pathable Tiles by flooding each in turn.
+   *
+   * @return the region of each Tile, row * width + col, or -1 if it isn't
+   * pathable.
+   */
+  private static int[] flood(TileGrid grid)
+  {
+    int height = grid.tiles.length, width = grid.tiles[0].length;
+    int[] label = new int[width * height];
+    Arrays.fill(label, -1);
+    Deque<Integer> queue = new ArrayDeque<Integer>();
+    int n_regions = 0;
+    for(int i = 0; i < label.length; i++)
+    {
+      if(label[i] >= 0 || !grid.tiles[i / width][i % width].isPathable())
+        continue;
+      label[i] = n_regions;
+      queue.add(i);
+      while(!queue.isEmpty())
+      {
+        int x = queue.poll();
+        for(int d = 0; d < 4; d++)
+        {
+          int col = x % width + D_COL[d], row = x / width + D_ROW[d],
+              j = row * width + col;
+          if(col >= 0 && row >= 0 && col < width && row < height
+          && label[j] < 0 && grid.tiles[row][col].isPathable())
+          {
+            label[j] = n_regions;
+            queue.add(j);
+          }
+        }
+      }
+      n_regions++;
+    }
+    return label;
+  }
+
+  /**
+   * @return the number of Tiles whose region disagrees with the flood fill:
+   * the labels may differ, but they must map one to one.
+   */
+  private static int compareRegions(TileGrid grid, int[] label)
+  {
+    int width = grid.tiles[0].length, n_wrong = 0;
+    int[] to_grid = new int[label.length], from_grid = new int[label.length];
+    Arrays.fill(to_grid, -1);
+    Arrays.fill(from_grid, -1);
+    for(int i = 0; i < label.length; i++)
+    {
+      int region = grid.getRegion(grid.tiles[i / width][i % width]);
+      if((region < 0) != (label[i] < 0))
+        n_wrong++;
+      else if(region >= 0)
+      {
+        if(to_grid[label[i]] < 0 && from_grid[region] < 0)
+        {
+          to_grid[label[i]] = region;
+          from_grid[region] = label[i];
+        }
+        else if(to_grid[label[i]] != region || from_grid[region] != label[i])
+          n_wrong++;
+      }
+    }
+    return n_wrong;
+  }
+
+  /**
+   * @return 0 if the nearest reachable Tile, and the end of PathSearch's
+   * path, are as close to the goal as any Tile connected to the start, 1
+   * otherwise.
+   */
+  private static int compareNearest(TileGrid grid, int[] label, Tile from,
+                                    Tile to)
+  {
+    int width = grid.tiles[0].length, region = label[index(from, width)];
+    if(region < 0)
+      return 0;
+    int best = Integer.MAX_VALUE;
+    for(int i = 0; i < label.length; i++)
+      if(label[i] == region)
+        best = Math.min(best, distance(i, index(to, width), width));
+
+    Tile nearest = grid.getNearestReachable(from, to);
+    int i = index(nearest, width);
+    if(label[i] != region || distance(i, index(to, width), width) != best)
+      return 1;
+    Deque<Tile> path = new PathSearch(from, to).getPath();
+    return (nearest != from && (path.isEmpty() || path.getLast() != nearest))
+           ? 1 : 0;
+  }
+
+  private static int index(Tile tile, int width)
+  {
+    return (int)tile.grid_position.y * width + (int)tile.grid_position.x;
+  }
+
+  private static int distance(int a, int b, int width)
+  {
+    int d_col = a % width - b % width, d_row = a / width - b / width;
+    return d_col * d_col + d_row * d_row;
+  }
+
+  /* MAIN */
+  public static void main(String args[])
+  {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+    int n_checks = 0, n_wrong = 0, n_wrong_nearest = 0;
+    for(int map = 0; map < MAPS; map++)
+    {
+      Random random = new Random(seed + map);
+      int width = 20 + map % 7, height = 15 + map % 5;
+      boolean[][] pathable = new boolean[height][width];
+      for(boolean[] row : pathable)
+        for(int col = 0; col < width; col++)
+          row[col] = (random.nextDouble() >= 0.3 + 0.01 * (map % 20));
+      TileGrid grid = EBenchmarkMap.createGrid(pathable);
+
+      for(int change = 0; change < CHANGES; change++)
+      {
+        BenchmarkTile tile = (BenchmarkTile)
+          grid.tiles[random.nextInt(height)][random.nextInt(width)];
+        tile.pathable = !tile.pathable;
+        tile.changed();
+        if(change % EVERY != 0)
+          continue;
+
+        int[] label = flood(grid);
+        n_checks++;
+        n_wrong += compareRegions(grid, label);
+        n_wrong_nearest += compareNearest(grid, label,
+          grid.tiles[random.nextInt(height)][random.nextInt(width)],
+          grid.tiles[random.nextInt(height)][random.nextInt(width)]);
+      }
+    }
+    System.out.println("regions: " + n_checks + " comparisons, " + n_wrong
+                       + " Tiles wrong, " + n_wrong_nearest
+                       + " nearest goals wrong");
+    System.exit((n_wrong == 0 && n_wrong_nearest == 0) ? 0 : 1);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.check;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import wjd.amb.rts.PathFinder;
+import wjd.amb.rts.ReplanningPathSearch;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.TileGrid;
+import wjd.amb.rts.bench.BenchmarkTile;
+import wjd.amb.rts.bench.EBenchmarkMap;
+
+/**
+ * Check that ReplanningPathSearch's repaired paths stay as cheap as those of
+ * a PathFinder planning from scratch, while the unit walks along them and
+ * Tiles are opened, closed and made dearer, some of them on the path itself.
+ * Every path must also be walkable, one neighbour at a time without cutting
+ * corners, and lead to the same Tile. Runs headless from the command line,
+ * and exits with 1 if anything disagrees:
+ *
+ *   java wjd.amb.rts.check.ReplanningCheck [seed]
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class ReplanningCheck
+{
+  /* CONSTANTS */
+  private static final int MAPS = 100;
+  private static final int MOVES = 40;
+  private static final int WIDTH = 40, HEIGHT = 30;
+
+  /* FUNCTIONS */
+
+  /**
+   * @return the cost of a path, or -1 if it isn't walkable.
+   */
+  private static int cost(TileGrid grid, Tile start, Deque<Tile> path)
+  {
+    int total = 0;
+    Tile previous = start;
+    for(Tile tile : path)
+    {
+      int col = (int)tile.grid_position.x, row = (int)tile.grid_position.y,
+          from_col = (int)previous.grid_position.x,
+          from_row = (int)previous.grid_position.y,
+          d_col = col - from_col, d_row = row - from_row;
+      if(Math.abs(d_col) > 1 || Math.abs(d_row) > 1
+      || !grid.isPathable(col, row))
+        return -1;
+      if(d_col != 0 && d_row != 0)
+      {
+        if(!grid.isPathable(from_col + d_col, from_row)
+        || !grid.isPathable(from_col, from_row + d_row))
+          return -1;
+        total += PathFinder.diagonal(grid.getCost(col, row));
+      }
+      else
+        total += grid.getCost(col, row);
+      previous = tile;
+    }
+    return total;
+  }
+
+  private static TileGrid createMap(Random random)
+  {
+    boolean[][] pathable = new boolean[HEIGHT][WIDTH];
+    for(boolean[] row : pathable)
+      for(int col = 0; col < WIDTH; col++)
+        row[col] = (random.nextDouble() >= 0.2);
+    TileGrid grid = EBenchmarkMap.createGrid(pathable);
+    for(Tile[] row : (Tile[][])grid.tiles)
+      for(Tile tile : row)
+        if(random.nextInt(3) == 0)
+          ((BenchmarkTile)tile).cost += random.nextInt(300);
+    return grid;
+  }
+
+  /* MAIN */
+  public static void main(String args[])
+  {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+    int n_checks = 0, n_wrong = 0;
+    for(boolean diagonals : new boolean[] { false, true })
+      for(int map = 0; map < MAPS; map++)
+      {
+        Random random = new Random(seed + map);
+        TileGrid grid = createMap(random);
+        PathFinder finder = new PathFinder(grid).setDiagonals(diagonals);
+        Tile start = grid.tiles[random.nextInt(HEIGHT)][random.nextInt(WIDTH)],
+             end = grid.tiles[random.nextInt(HEIGHT)][random.nextInt(WIDTH)];
+        if(!start.isPathable())
+          continue;
+
+        ReplanningPathSearch search
+          = new ReplanningPathSearch(start, end, diagonals);
+        for(int move = 0; move < MOVES; move++)
+        {
+          Deque<Tile> path = search.getPath(),
+                      reference = finder.getPath(start, end);
+          int cost = cost(grid, start, path);
+          n_checks++;
+          if(cost < 0 || cost != cost(grid, start, reference)
+          || (reference.isEmpty() ? !path.isEmpty()
+              : (path.isEmpty() || path.getLast() != reference.getLast())))
+            n_wrong++;
+
+          // walk a little way along the path...
+          for(int step = random.nextInt(4); step > 0 && !path.isEmpty(); step--)
+            start = path.pollFirst();
+          search.setStart(start);
+
+          // ... while the map changes, often right in front of the unit
+          List<Tile> ahead = new ArrayList<Tile>(path);
+          for(int change = random.nextInt(4); change > 0; change--)
+          {
+            BenchmarkTile tile = (BenchmarkTile)(
+              (random.nextBoolean() && !ahead.isEmpty())
+              ? ahead.get(random.nextInt(ahead.size()))
+              : grid.tiles[random.nextInt(HEIGHT)][random.nextInt(WIDTH)]);
+            if(tile == start)
+              continue;
+            if(random.nextInt(3) == 0)
+              tile.cost = PathFinder.STRAIGHT_COST + random.nextInt(300);
+            else
+              tile.pathable = !tile.pathable;
+            tile.changed();
+          }
+        }
+        search.dispose();
+      }
+    System.out.println("replanning: " + n_checks + " paths, " + n_wrong
+                       + " wrong");
+    System.exit((n_wrong == 0) ? 0 : 1);
+  }
+}
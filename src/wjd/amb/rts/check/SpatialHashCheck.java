@@ -0,0 +1,256 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.check;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import wjd.math.Circle;
+import wjd.math.Rect;
+import wjd.math.SpatialHash;
+import wjd.math.V2;
+
+/**
+ * Check the pairs and queries of a SpatialHash against comparing every
+ * object with every other, while circles drift about and a few are removed
+ * and added again each frame, then time a frame of a bigger crowd: moving
+ * every object, finding every pair and running a hundred range queries.
+ * Runs headless from the command line, and exits with 1 if anything is
+ * missed, reported twice or reported wrongly:
+ *
+ *   java wjd.amb.rts.check.SpatialHashCheck [seed]
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class SpatialHashCheck
+{
+  /* CONSTANTS */
+  private static final int CHECKED_OBJECTS = 2000;
+  private static final int TIMED_OBJECTS = 10000;
+  private static final int FRAMES = 60;
+  private static final int WARM_UP_FRAMES = 10;
+  private static final int CHURN = 10;
+  private static final int QUERIES = 100;
+  private static final float CELL_SIZE = 32;
+  private static final float QUERY_SIZE = 200, QUERY_RADIUS = 100;
+
+  /* NESTING */
+
+  /**
+   * Circles drifting in a square, filed in a SpatialHash.
+   */
+  private static class Crowd
+  {
+    /* ATTRIBUTES */
+    public final SpatialHash<Integer> hash
+      = new SpatialHash<Integer>(CELL_SIZE);
+    public final Circle[] circles;
+    public final float width;
+    private final V2[] speeds;
+    private final int[] handles;
+    private final Random random;
+
+    /* METHODS */
+
+    // constructors
+    public Crowd(int n_objects, Random random)
+    {
+      this.random = random;
+      width = (float)Math.sqrt(n_objects) * 40;
+      circles = new Circle[n_objects];
+      speeds = new V2[n_objects];
+      handles = new int[n_objects];
+      for(int i = 0; i < n_objects; i++)
+      {
+        circles[i] = new Circle(randomPosition(), 4 + random.nextFloat() * 12);
+        speeds[i] = new V2(random.nextFloat() * 4 - 2,
+                           random.nextFloat() * 4 - 2);
+        handles[i] = hash.add(i, circles[i]);
+      }
+    }
+
+    // accessors
+    public V2 randomPosition()
+    {
+      return new V2(random.nextFloat() * width - width / 2,
+                    random.nextFloat() * width - width / 2);
+    }
+
+    // mutators
+    public void step()
+    {
+      for(int i = 0; i < circles.length; i++)
+      {
+        circles[i].centre.add(speeds[i]);
+        hash.move(handles[i], circles[i]);
+      }
+      for(int churn = 0; churn < CHURN; churn++)
+      {
+        int i = random.nextInt(circles.length);
+        hash.remove(handles[i]);
+        handles[i] = hash.add(i, circles[i]);
+      }
+    }
+  }
+
+  /* FUNCTIONS */
+
+  private static boolean overlaps(Circle a, float x0, float y0, float x1,
+                                  float y1)
+  {
+    return (a.centre.x - a.radius <= x1 && x0 <= a.centre.x + a.radius
+            && a.centre.y - a.radius <= y1 && y0 <= a.centre.y + a.radius);
+  }
+
+  private static boolean overlaps(Circle a, Circle b)
+  {
+    return overlaps(a, b.centre.x - b.radius, b.centre.y - b.radius,
+                    b.centre.x + b.radius, b.centre.y + b.radius);
+  }
+
+  /**
+   * @return whether the circle reaches the bounding box of the object.
+   */
+  private static boolean touches(Circle object, Circle area)
+  {
+    float d_x = Math.max(object.centre.x - object.radius,
+                         Math.min(area.centre.x,
+                                  object.centre.x + object.radius))
+                - area.centre.x,
+          d_y = Math.max(object.centre.y - object.radius,
+                         Math.min(area.centre.y,
+                                  object.centre.y + object.radius))
+                - area.centre.y;
+    return (d_x * d_x + d_y * d_y <= area.radius * area.radius);
+  }
+
+  /**
+   * @return 0 if the pairs are exactly those found by brute force, 1
+   * otherwise.
+   */
+  private static int comparePairs(Crowd crowd, List<Integer> pairs)
+  {
+    Set<Long> found = new HashSet<Long>();
+    for(int k = 0; k < pairs.size(); k += 2)
+    {
+      int a = pairs.get(k), b = pairs.get(k + 1);
+      if(!found.add(Math.min(a, b) * (long)crowd.circles.length
+                    + Math.max(a, b)))
+        return 1;
+    }
+    int n_expected = 0;
+    Circle[] circles = crowd.circles;
+    for(int a = 0; a < circles.length; a++)
+      for(int b = a + 1; b < circles.length; b++)
+        if(overlaps(circles[a], circles[b]))
+        {
+          n_expected++;
+          if(!found.contains(a * (long)circles.length + b))
+            return 1;
+        }
+    return (n_expected == found.size()) ? 0 : 1;
+  }
+
+  /**
+   * @return 0 if a random Rect and a random Circle query find exactly the
+   * objects found by brute force, 1 otherwise.
+   */
+  private static int compareQueries(Crowd crowd, List<Integer> result)
+  {
+    V2 position = crowd.randomPosition();
+    Rect rect = new Rect(position.x, position.y, QUERY_SIZE, QUERY_SIZE);
+    Circle circle = new Circle(crowd.randomPosition(), QUERY_RADIUS);
+    for(int query = 0; query < 2; query++)
+    {
+      result.clear();
+      if(query == 0)
+        crowd.hash.query(rect, result);
+      else
+        crowd.hash.query(circle, result);
+      Set<Integer> found = new HashSet<Integer>(result);
+      if(found.size() != result.size())
+        return 1;
+      int n_expected = 0;
+      for(int i = 0; i < crowd.circles.length; i++)
+        if((query == 0)
+           ? overlaps(crowd.circles[i], rect.x, rect.y, rect.endx(),
+                      rect.endy())
+           : touches(crowd.circles[i], circle))
+        {
+          n_expected++;
+          if(!found.contains(i))
+            return 1;
+        }
+      if(n_expected != found.size())
+        return 1;
+    }
+    return 0;
+  }
+
+  /* MAIN */
+  public static void main(String args[])
+  {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+    List<Integer> result = new ArrayList<Integer>(1 << 16);
+
+    // every frame of a smaller crowd against brute force
+    Crowd crowd = new Crowd(CHECKED_OBJECTS, new Random(seed));
+    int n_wrong_pairs = 0, n_wrong_queries = 0;
+    for(int frame = 0; frame < FRAMES; frame++)
+    {
+      crowd.step();
+      result.clear();
+      crowd.hash.getPairs(result);
+      n_wrong_pairs += comparePairs(crowd, result);
+      n_wrong_queries += compareQueries(crowd, result);
+    }
+    System.out.println("spatial hash: " + FRAMES + " frames of "
+                       + CHECKED_OBJECTS + " objects, " + n_wrong_pairs
+                       + " with wrong pairs, " + n_wrong_queries
+                       + " with wrong queries");
+
+    // time a bigger crowd, once warmed up
+    crowd = new Crowd(TIMED_OBJECTS, new Random(seed));
+    Random random = new Random(seed);
+    Rect area = new Rect(QUERY_SIZE, QUERY_SIZE);
+    long total_nanos = 0, n_pairs = 0;
+    for(int frame = 0; frame < FRAMES; frame++)
+    {
+      long start = System.nanoTime();
+      crowd.step();
+      result.clear();
+      n_pairs += crowd.hash.getPairs(result);
+      for(int query = 0; query < QUERIES; query++)
+      {
+        area.x = random.nextFloat() * crowd.width - crowd.width / 2;
+        area.y = random.nextFloat() * crowd.width - crowd.width / 2;
+        result.clear();
+        crowd.hash.query(area, result);
+      }
+      if(frame >= WARM_UP_FRAMES)
+        total_nanos += System.nanoTime() - start;
+    }
+    System.out.printf("spatial hash: %d objects, %.2f ms a frame, "
+                      + "%d pairs a frame%n", TIMED_OBJECTS,
+                      total_nanos / 1e6 / (FRAMES - WARM_UP_FRAMES),
+                      n_pairs / FRAMES);
+    System.exit((n_wrong_pairs == 0 && n_wrong_queries == 0) ? 0 : 1);
+  }
+}
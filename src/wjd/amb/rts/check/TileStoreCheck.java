@@ -0,0 +1,152 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.check;
+
+import java.util.Random;
+import wjd.amb.rts.PathFinder;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.TileGrid;
+import wjd.amb.rts.TileStore;
+import wjd.amb.rts.bench.BenchmarkTile;
+import wjd.math.Rect;
+import wjd.math.V2;
+
+/**
+ * Check that a TileStore copied from a TileGrid reads back the same Tiles,
+ * positions and areas, by index and through a Cursor, that types and flags
+ * read back unsigned and costs clamped, and measure the memory each takes per
+ * Tile. Runs headless from the command line, and exits with 1 if anything
+ * disagrees:
+ *
+ *   java wjd.amb.rts.check.TileStoreCheck [seed]
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class TileStoreCheck
+{
+  /* CONSTANTS */
+  private static final int WIDTH = 300, HEIGHT = 200;
+  private static final int BIG_SIZE = 1000;
+
+  /* FUNCTIONS */
+
+  private static TileGrid createMap(Random random, int width, int height)
+  {
+    // no pathability map, which would be measured along with the grid
+    TileGrid grid = new TileGrid(new V2(width, height), BenchmarkTile.TYPE)
+                      .clear();
+    for(Tile[] row : (Tile[][])grid.tiles)
+      for(Tile tile : row)
+      {
+        ((BenchmarkTile)tile).pathable = (random.nextDouble() >= 0.3);
+        ((BenchmarkTile)tile).cost += random.nextInt(300);
+      }
+    return grid;
+  }
+
+  /**
+   * @return the number of Tiles of the store which differ from the grid's.
+   */
+  private static int compareCopy(TileGrid grid, TileStore store)
+  {
+    int n_wrong = 0;
+    V2 position = new V2();
+    Rect area = new Rect();
+    V2 size = BenchmarkTile.TYPE.getSize(),
+       half_size = BenchmarkTile.TYPE.getHSize();
+    for(TileStore.Cursor c = store.cursor(); c.next(); )
+    {
+      Tile tile = grid.tiles[c.getRow()][c.getCol()];
+      c.getPixelPosition(position);
+      c.getPixelArea(area);
+      if(tile.isPathable() != c.isPathable() || tile.getCost() != c.getCost()
+      || c.getIndex() != store.index(c.getCol(), c.getRow())
+      || position.x != tile.pixel_position.x
+      || position.y != tile.pixel_position.y
+      || area.x != tile.pixel_position.x || area.y != tile.pixel_position.y
+      || area.w != size.x || area.h != size.y
+      || store.pixelToIndex(position.clone().add(half_size)) != c.getIndex())
+        n_wrong++;
+    }
+    return n_wrong;
+  }
+
+  /**
+   * @return the number of writes which didn't read back as documented.
+   */
+  private static int compareWrites(TileStore store)
+  {
+    int n_wrong = 0, i = store.index(5, 7);
+    TileStore.Cursor c = store.cursor().moveTo(5, 7);
+
+    // unsigned types and flags, with pathability one flag among others
+    c.setType(200).setFlags(0xF0).setPathable(true);
+    if(store.getType(i) != 200 || store.getFlags(i) != 0xF1
+    || !store.isPathable(i))
+      n_wrong++;
+    c.setPathable(false);
+    if(c.getFlags() != 0xF0 || c.isPathable())
+      n_wrong++;
+
+    // costs clamped rather than wrapped
+    c.setCost(40000);
+    if(store.getCost(i) != Short.MAX_VALUE)
+      n_wrong++;
+    c.setCost(-5);
+    if(store.getCost(i) != 0)
+      n_wrong++;
+    c.setCost(PathFinder.DIAGONAL_COST);
+    if(store.getCost(i) != PathFinder.DIAGONAL_COST)
+      n_wrong++;
+    return n_wrong;
+  }
+
+  private static long used()
+  {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /* MAIN */
+  public static void main(String args[])
+  {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+    Random random = new Random(seed);
+    TileGrid grid = createMap(random, WIDTH, HEIGHT);
+    TileStore store = new TileStore(grid);
+    int n_wrong = compareCopy(grid, store) + compareWrites(store);
+    System.out.println("tile store: " + WIDTH * HEIGHT + " Tiles copied, "
+                       + n_wrong + " wrong");
+
+    // measure a bigger grid, then a store of it
+    grid = null;
+    store = null;
+    long before = used();
+    grid = createMap(random, BIG_SIZE, BIG_SIZE);
+    long with_grid = used();
+    store = new TileStore(grid);
+    long with_store = used();
+    double n_tiles = BIG_SIZE * BIG_SIZE;
+    System.out.printf("tile store: %.1f bytes per Tile in a TileGrid, "
+                      + "%.1f in a TileStore%n",
+                      (with_grid - before) / n_tiles,
+                      (with_store - with_grid) / n_tiles);
+    System.exit((n_wrong == 0) ? 0 : 1);
+  }
+}
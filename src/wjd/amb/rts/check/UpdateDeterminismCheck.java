@@ -0,0 +1,291 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.amb.rts.check;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import wjd.amb.control.EUpdateResult;
+import wjd.amb.rts.EUpdateSchedule;
+import wjd.amb.rts.IBufferedTile;
+import wjd.amb.rts.ITileListener;
+import wjd.amb.rts.ITileType;
+import wjd.amb.rts.Tile;
+import wjd.amb.rts.TileGrid;
+import wjd.amb.rts.TileUpdater;
+import wjd.amb.view.ICanvas;
+import wjd.math.V2;
+
+/**
+ * Check that a TileUpdater gives the same grid as updating every Tile one
+ * after the other, however many threads it has and however it bands the
+ * rows, for updates which read their neighbours:
+ *
+ * - CHECKERBOARD runs a heat diffusion in place, each Tile mixing its
+ *   neighbours' heat into its own, compared with a sequential sweep of the
+ *   same four phases;
+ * - DOUBLE_BUFFERED runs Conway's Game of Life, whose cells block the
+ *   Tiles they stand on, compared with a sequential update and commit; the
+ *   Tiles the grid is told have changed must come in the same order too.
+ *
+ * Runs headless from the command line, and exits with 1 if any run differs:
+ *
+ *   java wjd.amb.rts.check.UpdateDeterminismCheck [seed]
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public abstract class UpdateDeterminismCheck
+{
+  /* CONSTANTS */
+  // odd sizes, so that bands and checkerboard phases don't fit exactly
+  private static final int WIDTH = 301, HEIGHT = 203;
+  private static final int PASSES = 20;
+  private static final int T_DELTA = 7;
+  private static final int THREADS = 8;
+  private static final int[] BANDS = { 1, 3, 8, 50 };
+  private static final int HEAT_MODULO = 1000003;
+  private static final V2 SIZE = new V2(1, 1);
+
+  private static final ITileType TYPE = new ITileType()
+  {
+    @Override
+    public Tile create(int row, int col, TileGrid grid)
+    {
+      return new LifeTile(row, col, grid);
+    }
+
+    @Override
+    public V2 getSize()
+    {
+      return SIZE;
+    }
+
+    @Override
+    public V2 getHSize()
+    {
+      return SIZE.clone().scale(0.5f);
+    }
+
+    @Override
+    public V2 getISize()
+    {
+      return SIZE.clone().inv();
+    }
+  };
+
+  /* NESTING */
+
+  /**
+   * A cell of the Game of Life, which also diffuses heat.
+   */
+  private static class LifeTile extends Tile implements IBufferedTile
+  {
+    /* ATTRIBUTES */
+    private final TileGrid grid;
+    private EUpdateSchedule schedule;
+    // null when updated sequentially
+    private TileUpdater updater = null;
+    private boolean alive, next;
+    private int heat;
+
+    /* METHODS */
+
+    // constructors
+    public LifeTile(int row, int col, TileGrid grid)
+    {
+      super(row, col, SIZE, grid);
+      this.grid = grid;
+    }
+
+    // accessors
+    private LifeTile neighbour(int d_col, int d_row)
+    {
+      int col = (int)grid_position.x + d_col,
+          row = (int)grid_position.y + d_row;
+      return (col >= 0 && row >= 0 && col < WIDTH && row < HEIGHT)
+             ? (LifeTile)grid.tiles[row][col] : null;
+    }
+
+    /* IMPLEMENTS -- TILE */
+    @Override
+    public boolean isPathable()
+    {
+      return !alive;
+    }
+
+    @Override
+    public void render(ICanvas canvas)
+    {
+    }
+
+    /* IMPLEMENTS -- IDYNAMIC */
+    @Override
+    public EUpdateResult update(int t_delta)
+    {
+      if(schedule == EUpdateSchedule.CHECKERBOARD)
+      {
+        // mix in the neighbours' heat, as it is now
+        int sum = 0;
+        for(int d = -1; d <= 1; d += 2)
+        {
+          LifeTile horizontal = neighbour(d, 0), vertical = neighbour(0, d);
+          sum += ((horizontal == null) ? 0 : horizontal.heat)
+                 + ((vertical == null) ? 0 : vertical.heat);
+        }
+        heat = (heat * 3 + sum) % HEAT_MODULO + t_delta;
+      }
+      else
+      {
+        // count the neighbours alive before the pass
+        int n_alive = 0;
+        for(int d_row = -1; d_row <= 1; d_row++)
+          for(int d_col = -1; d_col <= 1; d_col++)
+          {
+            LifeTile other = neighbour(d_col, d_row);
+            if(other != this && other != null && other.alive)
+              n_alive++;
+          }
+        next = (n_alive == 3 || (alive && n_alive == 2));
+      }
+      return EUpdateResult.CONTINUE;
+    }
+
+    /* IMPLEMENTS -- IBUFFEREDTILE */
+    @Override
+    public void commit()
+    {
+      if(alive == next)
+        return;
+      alive = next;
+      if(updater != null)
+        updater.tileChanged(this);
+      else
+        changed();
+    }
+  }
+
+  /* FUNCTIONS */
+
+  private static TileGrid createGrid(EUpdateSchedule schedule, long seed,
+                                     final List<Integer> changes)
+  {
+    TileGrid grid = new TileGrid(new V2(WIDTH, HEIGHT), TYPE).clear();
+    Random random = new Random(seed);
+    for(Tile[] row : (Tile[][])grid.tiles)
+      for(Tile tile : row)
+      {
+        LifeTile cell = (LifeTile)tile;
+        cell.schedule = schedule;
+        cell.alive = (random.nextInt(3) == 0);
+        cell.heat = random.nextInt(100);
+        tile.changed();
+      }
+    grid.addListener(new ITileListener()
+    {
+      @Override
+      public void tileChanged(Tile tile)
+      {
+        changes.add((int)tile.grid_position.y * WIDTH
+                    + (int)tile.grid_position.x);
+      }
+    });
+    return grid;
+  }
+
+  /**
+   * Update the grid one Tile at a time, in the order of the schedule.
+   */
+  private static void updateSequentially(TileGrid grid,
+                                         EUpdateSchedule schedule)
+  {
+    for(int pass = 0; pass < PASSES; pass++)
+      if(schedule == EUpdateSchedule.CHECKERBOARD)
+      {
+        for(int phase = 0; phase < 4; phase++)
+          for(int row = phase >> 1; row < HEIGHT; row += 2)
+            for(int col = phase & 1; col < WIDTH; col += 2)
+              grid.tiles[row][col].update(T_DELTA);
+      }
+      else
+      {
+        for(Tile[] row : (Tile[][])grid.tiles)
+          for(Tile tile : row)
+            tile.update(T_DELTA);
+        for(Tile[] row : (Tile[][])grid.tiles)
+          for(Tile tile : row)
+            ((LifeTile)tile).commit();
+      }
+  }
+
+  /**
+   * @return the number of Tiles whose state differs between the grids.
+   */
+  private static int compare(TileGrid a, TileGrid b)
+  {
+    int n_wrong = 0;
+    for(int row = 0; row < HEIGHT; row++)
+      for(int col = 0; col < WIDTH; col++)
+      {
+        LifeTile x = (LifeTile)a.tiles[row][col],
+                 y = (LifeTile)b.tiles[row][col];
+        if(x.alive != y.alive || x.heat != y.heat
+        || a.isPathable(col, row) != b.isPathable(col, row))
+          n_wrong++;
+      }
+    return n_wrong;
+  }
+
+  /* MAIN */
+  public static void main(String args[])
+  {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+    boolean wrong = false;
+    for(EUpdateSchedule schedule : new EUpdateSchedule[]
+        { EUpdateSchedule.CHECKERBOARD, EUpdateSchedule.DOUBLE_BUFFERED })
+    {
+      List<Integer> expected_changes = new ArrayList<Integer>();
+      TileGrid expected = createGrid(schedule, seed, expected_changes);
+      updateSequentially(expected, schedule);
+
+      for(int band : BANDS)
+      {
+        List<Integer> changes = new ArrayList<Integer>();
+        TileGrid grid = createGrid(schedule, seed, changes);
+        TileUpdater updater = new TileUpdater(grid, schedule,
+                                              new ForkJoinPool(THREADS))
+                                .setBand(band);
+        for(Tile[] row : (Tile[][])grid.tiles)
+          for(Tile tile : row)
+            ((LifeTile)tile).updater = updater;
+        for(int pass = 0; pass < PASSES; pass++)
+          updater.update(T_DELTA);
+        updater.shutdown();
+
+        int n_wrong = compare(expected, grid);
+        boolean same_changes = changes.equals(expected_changes);
+        System.out.println("update: " + schedule + ", band of " + band
+                           + ", " + n_wrong + " Tiles wrong, "
+                           + changes.size() + " changes"
+                           + (same_changes ? "" : ", in the wrong order"));
+        wrong |= (n_wrong > 0 || !same_changes);
+      }
+    }
+    System.exit(wrong ? 1 : 0);
+  }
+}
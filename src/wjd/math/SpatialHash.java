@@ -0,0 +1,492 @@
+/*
+ Copyright (C) 2012 William James Dyce
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package wjd.math;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A broadphase for moving objects: space is cut into square cells, and each
+ * object is filed under every cell its bounding box overlaps, so that the
+ * objects near a point or near each other can be found without comparing
+ * every object against every other. Only the cells in use take any space, so
+ * the world needs no edges.
+ *
+ * Objects are added with their bounds, which gives a handle to move or
+ * remove them by. Queries and pairs give candidates whose bounding boxes
+ * overlap: exact tests, such as Circle.collides, are up to the caller. None
+ * of them allocate anything once the tables have grown to size, the results
+ * being added to a list supplied by the caller.
+ *
+ * Cells should be about as big as the typical object: much smaller and
+ * objects are filed under many cells, much bigger and cells hold many
+ * objects which don't touch.
+ *
+ * @author wdyce
+ * @since Oct 17, 2026
+ */
+public class SpatialHash<T>
+{
+  /* CONSTANTS */
+  private static final long EMPTY = Long.MIN_VALUE;
+  private static final int DEFAULT_CAPACITY = 64;
+  private static final int DEFAULT_CELLS = 256;
+
+  /* ATTRIBUTES */
+  private final float cell_size, inverse_cell_size;
+
+  // objects, by handle
+  private Object[] objects = new Object[DEFAULT_CAPACITY];
+  private float[] min_x = new float[DEFAULT_CAPACITY],
+                  min_y = new float[DEFAULT_CAPACITY],
+                  max_x = new float[DEFAULT_CAPACITY],
+                  max_y = new float[DEFAULT_CAPACITY];
+  // the cells each object is filed under, inclusive
+  private int[] first_col = new int[DEFAULT_CAPACITY],
+                first_row = new int[DEFAULT_CAPACITY],
+                last_col = new int[DEFAULT_CAPACITY],
+                last_row = new int[DEFAULT_CAPACITY];
+  // the last query each object was returned by, so it isn't returned twice
+  private int[] stamps = new int[DEFAULT_CAPACITY];
+  private int stamp = 0;
+  // handles of removed objects, to be reused
+  private int[] free = new int[DEFAULT_CAPACITY];
+  private int n_free = 0, n_handles = 0;
+
+  // cells, in an open-addressing table from (col, row) to handles
+  private long[] cell_keys;
+  private int[][] cell_members;
+  private int[] cell_sizes;
+  private int cell_mask, n_cells = 0;
+
+  /* METHODS */
+
+  // constructors
+
+  /**
+   * Create an empty broadphase.
+   *
+   * @param cell_size the width and height of the cells.
+   */
+  public SpatialHash(float cell_size)
+  {
+    this.cell_size = cell_size;
+    this.inverse_cell_size = 1.0f / cell_size;
+    allocateCells(DEFAULT_CELLS);
+  }
+
+  // accessors
+
+  public float getCellSize()
+  {
+    return cell_size;
+  }
+
+  /**
+   * @return the number of objects.
+   */
+  public int size()
+  {
+    return n_handles - n_free;
+  }
+
+  /**
+   * @param handle a handle returned by add.
+   * @return the object added with the handle.
+   */
+  public T get(int handle)
+  {
+    return object(handle);
+  }
+
+  /**
+   * Find the objects whose bounding boxes overlap an area.
+   *
+   * @param area the area to search.
+   * @param result the list to add the objects found to.
+   * @return the number of objects found.
+   */
+  public int query(Rect area, List<T> result)
+  {
+    return query(area.x, area.y, area.endx(), area.endy(), null, result);
+  }
+
+  /**
+   * Find the objects whose bounding boxes overlap a circle.
+   *
+   * @param area the circle to search.
+   * @param result the list to add the objects found to.
+   * @return the number of objects found.
+   */
+  public int query(Circle area, List<T> result)
+  {
+    return query(area.centre.x - area.radius, area.centre.y - area.radius,
+                 area.centre.x + area.radius, area.centre.y + area.radius,
+                 area, result);
+  }
+
+  /**
+   * Find every pair of objects whose bounding boxes overlap, each once.
+   *
+   * @param result the list to add the pairs to, one object after the other:
+   * the objects of pair k are at 2k and 2k + 1, counting from the size of the
+   * list before the call.
+   * @return the number of pairs found.
+   */
+  public int getPairs(List<T> result)
+  {
+    int n_pairs = 0;
+    for(int slot = 0; slot < cell_keys.length; slot++)
+    {
+      int size = cell_sizes[slot];
+      if(cell_keys[slot] == EMPTY || size < 2)
+        continue;
+      int[] members = cell_members[slot];
+      long key = cell_keys[slot];
+      int col = (int)key, row = (int)(key >> 32);
+      for(int i = 0; i < size; i++)
+      {
+        int a = members[i];
+        for(int j = i + 1; j < size; j++)
+        {
+          int b = members[j];
+          // objects sharing several cells are paired in the first only
+          if(col != Math.max(first_col[a], first_col[b])
+          || row != Math.max(first_row[a], first_row[b])
+          || !overlaps(a, b))
+            continue;
+          result.add(object(a));
+          result.add(object(b));
+          n_pairs++;
+        }
+      }
+    }
+    return n_pairs;
+  }
+
+  // mutators
+
+  /**
+   * Add an object.
+   *
+   * @param object the object to add.
+   * @param bounds the area it covers.
+   * @return the handle by which to move or remove the object.
+   */
+  public int add(T object, Rect bounds)
+  {
+    return add(object, bounds.x, bounds.y, bounds.endx(), bounds.endy());
+  }
+
+  public int add(T object, Circle bounds)
+  {
+    return add(object,
+               bounds.centre.x - bounds.radius, bounds.centre.y - bounds.radius,
+               bounds.centre.x + bounds.radius, bounds.centre.y + bounds.radius);
+  }
+
+  /**
+   * Tell the broadphase an object has moved or changed size: this is cheap
+   * unless it overlaps different cells from before.
+   *
+   * @param handle the handle returned when the object was added.
+   * @param bounds the area it now covers.
+   */
+  public void move(int handle, Rect bounds)
+  {
+    move(handle, bounds.x, bounds.y, bounds.endx(), bounds.endy());
+  }
+
+  public void move(int handle, Circle bounds)
+  {
+    move(handle,
+         bounds.centre.x - bounds.radius, bounds.centre.y - bounds.radius,
+         bounds.centre.x + bounds.radius, bounds.centre.y + bounds.radius);
+  }
+
+  /**
+   * Remove an object: its handle may be given to another object later.
+   *
+   * @param handle the handle returned when the object was added.
+   */
+  public void remove(int handle)
+  {
+    unfile(handle, first_col[handle], first_row[handle],
+           last_col[handle], last_row[handle]);
+    objects[handle] = null;
+    if(n_free == free.length)
+      free = Arrays.copyOf(free, free.length * 2);
+    free[n_free++] = handle;
+  }
+
+  /**
+   * Remove every object, keeping the tables for reuse.
+   */
+  public void clear()
+  {
+    Arrays.fill(objects, 0, n_handles, null);
+    Arrays.fill(cell_keys, EMPTY);
+    Arrays.fill(cell_sizes, 0);
+    n_cells = n_handles = n_free = 0;
+  }
+
+  /* SUBROUTINES */
+
+  private int cell(float coordinate)
+  {
+    return (int)Math.floor(coordinate * inverse_cell_size);
+  }
+
+  @SuppressWarnings("unchecked")
+  private T object(int handle)
+  {
+    return (T)objects[handle];
+  }
+
+  private boolean overlaps(int a, int b)
+  {
+    return (min_x[a] <= max_x[b] && min_x[b] <= max_x[a]
+            && min_y[a] <= max_y[b] && min_y[b] <= max_y[a]);
+  }
+
+  private int add(T object, float x0, float y0, float x1, float y1)
+  {
+    int handle;
+    if(n_free > 0)
+      handle = free[--n_free];
+    else
+    {
+      if(n_handles == objects.length)
+        growObjects(objects.length * 2);
+      handle = n_handles++;
+    }
+    objects[handle] = object;
+    setBounds(handle, x0, y0, x1, y1);
+    file(handle, first_col[handle], first_row[handle],
+         last_col[handle], last_row[handle]);
+    return handle;
+  }
+
+  private void move(int handle, float x0, float y0, float x1, float y1)
+  {
+    int old_first_col = first_col[handle], old_first_row = first_row[handle],
+        old_last_col = last_col[handle], old_last_row = last_row[handle];
+    setBounds(handle, x0, y0, x1, y1);
+
+    // most moves stay within the same cells
+    if(first_col[handle] == old_first_col && first_row[handle] == old_first_row
+    && last_col[handle] == old_last_col && last_row[handle] == old_last_row)
+      return;
+    unfile(handle, old_first_col, old_first_row, old_last_col, old_last_row);
+    file(handle, first_col[handle], first_row[handle],
+         last_col[handle], last_row[handle]);
+  }
+
+  private void setBounds(int handle, float x0, float y0, float x1, float y1)
+  {
+    min_x[handle] = x0;
+    min_y[handle] = y0;
+    max_x[handle] = x1;
+    max_y[handle] = y1;
+    first_col[handle] = cell(x0);
+    first_row[handle] = cell(y0);
+    last_col[handle] = cell(x1);
+    last_row[handle] = cell(y1);
+  }
+
+  private int query(float x0, float y0, float x1, float y1, Circle circle,
+                    List<T> result)
+  {
+    // a fresh stamp marks the objects already returned by this query
+    if(++stamp == Integer.MAX_VALUE)
+    {
+      Arrays.fill(stamps, 0);
+      stamp = 1;
+    }
+
+    int n_found = 0;
+    for(int row = cell(y0), end_row = cell(y1); row <= end_row; row++)
+      for(int col = cell(x0), end_col = cell(x1); col <= end_col; col++)
+      {
+        int slot = find(col, row);
+        if(slot < 0)
+          continue;
+        int[] members = cell_members[slot];
+        for(int i = 0; i < cell_sizes[slot]; i++)
+        {
+          int handle = members[i];
+          if(stamps[handle] == stamp)
+            continue;
+          stamps[handle] = stamp;
+          if(min_x[handle] <= x1 && x0 <= max_x[handle]
+          && min_y[handle] <= y1 && y0 <= max_y[handle]
+          && (circle == null || touches(handle, circle)))
+          {
+            result.add(object(handle));
+            n_found++;
+          }
+        }
+      }
+    return n_found;
+  }
+
+  /**
+   * Does a circle reach an object's bounding box?
+   */
+  private boolean touches(int handle, Circle circle)
+  {
+    float dx = Math.max(min_x[handle],
+                        Math.min(circle.centre.x, max_x[handle]))
+               - circle.centre.x,
+          dy = Math.max(min_y[handle],
+                        Math.min(circle.centre.y, max_y[handle]))
+               - circle.centre.y;
+    return (dx * dx + dy * dy <= circle.radius * circle.radius);
+  }
+
+  private void file(int handle, int col0, int row0, int col1, int row1)
+  {
+    for(int row = row0; row <= row1; row++)
+      for(int col = col0; col <= col1; col++)
+      {
+        int slot = findOrCreate(col, row), size = cell_sizes[slot];
+        int[] members = cell_members[slot];
+        if(members == null)
+          members = cell_members[slot] = new int[4];
+        else if(size == members.length)
+          members = cell_members[slot] = Arrays.copyOf(members, size * 2);
+        members[size] = handle;
+        cell_sizes[slot] = size + 1;
+      }
+  }
+
+  private void unfile(int handle, int col0, int row0, int col1, int row1)
+  {
+    for(int row = row0; row <= row1; row++)
+      for(int col = col0; col <= col1; col++)
+      {
+        int slot = find(col, row);
+        int[] members = cell_members[slot];
+        int last = --cell_sizes[slot];
+        for(int i = 0; i <= last; i++)
+          if(members[i] == handle)
+          {
+            members[i] = members[last];
+            break;
+          }
+      }
+  }
+
+  private static long key(int col, int row)
+  {
+    return ((long)row << 32) | (col & 0xFFFFFFFFL);
+  }
+
+  private int slot(long key)
+  {
+    // mix the bits so that neighbouring cells spread out
+    key *= 0x9E3779B97F4A7C15L;
+    return (int)(key >>> 32) & cell_mask;
+  }
+
+  /**
+   * @return the slot of a cell, or -1 if nothing was ever filed under it.
+   */
+  private int find(int col, int row)
+  {
+    long key = key(col, row);
+    for(int i = slot(key); cell_keys[i] != EMPTY; i = (i + 1) & cell_mask)
+      if(cell_keys[i] == key)
+        return i;
+    return -1;
+  }
+
+  private int findOrCreate(int col, int row)
+  {
+    // keep the table at most half full, so that probes stay short; empty
+    // cells are kept, since objects tend to come back to them, until the
+    // table fills up and they are dropped: it only grows if most of what
+    // fills it is still in use, so objects roaming a world without edges
+    // don't make it grow for ever
+    if(2 * (n_cells + 1) > cell_keys.length)
+      rehash((4 * countUsedCells() > cell_keys.length)
+             ? cell_keys.length * 2
+             : cell_keys.length);
+
+    long key = key(col, row);
+    int i = slot(key);
+    for(; cell_keys[i] != EMPTY; i = (i + 1) & cell_mask)
+      if(cell_keys[i] == key)
+        return i;
+    cell_keys[i] = key;
+    n_cells++;
+    return i;
+  }
+
+  private int countUsedCells()
+  {
+    int n_used = 0;
+    for(int i = 0; i < cell_keys.length; i++)
+      if(cell_keys[i] != EMPTY && cell_sizes[i] > 0)
+        n_used++;
+    return n_used;
+  }
+
+  private void allocateCells(int capacity)
+  {
+    cell_keys = new long[capacity];
+    cell_members = new int[capacity][];
+    cell_sizes = new int[capacity];
+    cell_mask = capacity - 1;
+    Arrays.fill(cell_keys, EMPTY);
+  }
+
+  private void rehash(int capacity)
+  {
+    long[] old_keys = cell_keys;
+    int[][] old_members = cell_members;
+    int[] old_sizes = cell_sizes;
+    allocateCells(capacity);
+    n_cells = 0;
+    for(int i = 0; i < old_keys.length; i++)
+      if(old_keys[i] != EMPTY && old_sizes[i] > 0)
+      {
+        long key = old_keys[i];
+        int slot = slot(key);
+        while(cell_keys[slot] != EMPTY)
+          slot = (slot + 1) & cell_mask;
+        cell_keys[slot] = key;
+        cell_members[slot] = old_members[i];
+        cell_sizes[slot] = old_sizes[i];
+        n_cells++;
+      }
+  }
+
+  private void growObjects(int capacity)
+  {
+    objects = Arrays.copyOf(objects, capacity);
+    min_x = Arrays.copyOf(min_x, capacity);
+    min_y = Arrays.copyOf(min_y, capacity);
+    max_x = Arrays.copyOf(max_x, capacity);
+    max_y = Arrays.copyOf(max_y, capacity);
+    first_col = Arrays.copyOf(first_col, capacity);
+    first_row = Arrays.copyOf(first_row, capacity);
+    last_col = Arrays.copyOf(last_col, capacity);
+    last_row = Arrays.copyOf(last_row, capacity);
+    stamps = Arrays.copyOf(stamps, capacity);
+  }
+}